@@ -0,0 +1,34 @@
+/**
+ * This interface is implemented by the ways a car park can pick a vacant spot for a car on its own,
+ * e.g. the spot nearest the entrance. CarPark tells the strategy about every spot that becomes vacant
+ * or stops being vacant, so a strategy can keep its vacant spots in a priority structure and pick one
+ * without scanning the car park.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+public interface AllocationStrategy
+{
+    /**
+    Called when a spot becomes vacant: it was added, or its car left.
+    @param parkingSpot the vacant spot
+    **/
+    void spotVacant(ParkingSpot parkingSpot);
+
+    /**
+    Called when a spot stops being vacant: a car parked in it, or it was deleted.
+    @param parkingSpot the spot that is no longer vacant
+    **/
+    void spotTaken(ParkingSpot parkingSpot);
+
+    /**
+    Picks the vacant spot the next car should go to, without taking it.
+    @return the chosen spot, or null if no spot is vacant
+    **/
+    ParkingSpot pick();
+
+    /**
+    Forgets every vacant spot.
+    **/
+    void clear();
+}
@@ -1,29 +1,42 @@
-
 /**
- * This class represents a car. 
+ * This class represents a car.
  * It stores information about the car's registration number, make, model, and year.
+ * The make and model are kept as codes from the shared VehicleDictionary, and the year as an int,
+ * so cars of the same make and model share one copy of each string. A make or model met once the dictionary
+ * is full is kept as the car's own string instead.
  *
  * @author (Aditya Roy)
  * @version (13/05/2024)
- */   
+ */
 public class Car
 {
     private String registrationNumber; // stores car registration number
-    private String make;  // stores car make
-    private String model; // stores car model
-    private String year; // stores car year
+    private int make;  // stores car make, as a VehicleDictionary.MAKES code
+    private int model; // stores car model, as a VehicleDictionary.MODELS code
+    private String makeValue; // stores car make itself if VehicleDictionary.MAKES was full, null otherwise
+    private String modelValue; // stores car model itself if VehicleDictionary.MODELS was full, null otherwise
+    private int year; // stores car year
 
     /**
     Constructor for objects of class Car
     **/
-    public Car(String registration, String make, String model, String year)
+    public Car(String registration, String make, String model, int year)
     {
         this.registrationNumber = registration;
-        this.make = make;
-        this.model = model;
+        setMake(make);
+        setModel(model);
         this.year = year;
     }
-    
+
+    /**
+    Constructor for objects of class Car with the year as text, e.g. when read back from a log.
+    @throws NumberFormatException if the year is not a number
+    **/
+    public Car(String registration, String make, String model, String year)
+    {
+        this(registration, make, model, Integer.parseInt(year));
+    }
+
     /**
     Getter and setter methods for the private variable 'Registration'
     **/
@@ -33,34 +46,54 @@ public class Car
     public void setRegistration(String registration){
         this.registrationNumber = registration;
     }
-    
+
     /**
     Getter and setter methods for the private variable 'Make'
     **/
     public String getMake(){
-        return this.make;
+        return this.makeValue != null ? this.makeValue : VehicleDictionary.MAKES.value(this.make);
     }
     public void setMake(String make){
-        this.make = make;
+        this.make = VehicleDictionary.MAKES.code(make);
+        this.makeValue = this.make == VehicleDictionary.NOT_CODED ? make : null;
     }
-    
+
     /**
     Getter and setter methods for the private variable 'Model'
     **/
     public String getModel(){
-        return this.model;
+        return this.modelValue != null ? this.modelValue : VehicleDictionary.MODELS.value(this.model);
     }
     public void setModel(String model){
-        this.model = model;
+        this.model = VehicleDictionary.MODELS.code(model);
+        this.modelValue = this.model == VehicleDictionary.NOT_CODED ? model : null;
     }
-    
+
     /**
     Getter and setter methods for the private variable 'Year'
     **/
     public String getYear(){
-     return this.year;
+     return Integer.toString(this.year);
     }
     public void setYear(String year){
-        this.year = year;
+        this.year = Integer.parseInt(year);
+    }
+
+    /**
+    Gets the make and model codes, which are equal for two cars exactly when their makes (or models) are,
+    unless the code is VehicleDictionary.NOT_CODED; compare getMake() (or getModel()) then.
+    **/
+    public int getMakeCode(){
+        return this.make;
+    }
+    public int getModelCode(){
+        return this.model;
+    }
+
+    /**
+    Gets the year as a number.
+    **/
+    public int getYearValue(){
+        return this.year;
     }
 }
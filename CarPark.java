@@ -6,18 +6,197 @@
  * @author (Aditya Roy)
  * @version (13/05/2024)
  */
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeMap;
 
 public class CarPark
 {
     private ArrayList<ParkingSpot> parkingSpots;
+    private HashMap<String, Integer> spotIndex; // spot identifier -> position in parkingSpots
+    private HashMap<String, Integer> carIndex; // car registration -> position of the spot holding the car
+    private TreeMap<String, HashSet<ParkingSpot>> makeIndex; // car make (any case) -> spots holding that make
+    private TreeMap<String, HashSet<ParkingSpot>> modelIndex; // car model (any case) -> spots holding that model
+    private RegistrationTrie registrations; // car registration, character by character -> spot holding the car
+    private VacancyTracker vacancies; // vacant spots, for constant time counting and allocation
+    private AllocationStrategy allocation; // picks the spot for parkAnywhere, or null to take any vacant spot
+    private ReservationBook reservations; // advance bookings of the spots
+    private ParkingLog log; // write-ahead log of mutations, or null if not persisted
+    private SearchResult currentSearch; // spots highlighted by the searches since the last resetSearch()
+    private Clock clock; // source of parking times
+    private ParkingEvents events; // stream the changes are published to, or null if not observed
+    private CarParkMetrics metrics; // call counts and timings of the public operations
+    private ParkingAnalytics analytics; // live occupancy, turnover and dwell-time figures
+    private Tariff tariff; // prices sessions on exit, or null if parking is free
+    private SessionLedger sessions; // finished sessions, or null if not recorded
     
     /**
-    Constructor that initializes an empty ArrayList to store parking spots.
+    Constructor that initializes an empty ArrayList to store parking spots
+    and the lookup indexes kept alongside it.
     **/
     public CarPark()
     {
         this.parkingSpots = new ArrayList<ParkingSpot>();
+        this.spotIndex = new HashMap<String, Integer>();
+        this.carIndex = new HashMap<String, Integer>();
+        // case-insensitive ordering folds case during comparison, so lookups need no lower-cased copies
+        this.makeIndex = new TreeMap<String, HashSet<ParkingSpot>>(String.CASE_INSENSITIVE_ORDER);
+        this.modelIndex = new TreeMap<String, HashSet<ParkingSpot>>(String.CASE_INSENSITIVE_ORDER);
+        this.registrations = new RegistrationTrie();
+        this.vacancies = new VacancyTracker();
+        this.currentSearch = new SearchResult();
+        this.clock = Clock.systemUTC();
+        this.metrics = new CarParkMetrics();
+        this.analytics = new ParkingAnalytics();
+        this.reservations = new ReservationBook();
+    }
+    
+    /**
+    Attaches a write-ahead log. Every later mutation is appended to it before it is applied.
+    Replay any existing log into this car park (see ParkingLog.replay) before attaching it.
+    @param log the log to append to, or null to stop logging
+    **/
+    public void setLog(ParkingLog log){
+        this.log = log;
+    }
+    
+    /**
+    Sets the clock parking times are read from, e.g. a fixed clock in a simulation.
+    @param clock the clock to use; the system clock is used by default
+    **/
+    public void setClock(Clock clock){
+        this.clock = clock;
+    }
+    
+    /**
+    Attaches an event stream. Every later change is published to it after it is applied,
+    so consumers can follow the car park without re-reading viewAllSpots().
+    @param events the stream to publish to, or null to stop publishing
+    **/
+    public void setEvents(ParkingEvents events){
+        this.events = events;
+    }
+    
+    /**
+    Sets the tariff cars are charged by when they leave.
+    @param tariff the tariff to use, or null to charge nothing
+    **/
+    public void setTariff(Tariff tariff){
+        this.tariff = tariff;
+    }
+    
+    /**
+    Attaches a ledger. Every later car removal is recorded in it with its charge, ready for Settlement.
+    @param sessions the ledger to record in, or null to stop recording
+    **/
+    public void setSessionLedger(SessionLedger sessions){
+        this.sessions = sessions;
+    }
+    
+    /**
+    Sets how parkAnywhere picks a spot, e.g. a NearestEntranceStrategy.
+    The strategy is handed every vacant spot now and kept up to date as spots change.
+    @param allocation the strategy to use, or null to take any vacant spot
+    **/
+    public void setAllocationStrategy(AllocationStrategy allocation){
+        this.allocation = allocation;
+        if(allocation == null) return;
+        allocation.clear();
+        for(ParkingSpot parkingSpot : parkingSpots){
+            if(parkingSpot.getStatus()) allocation.spotVacant(parkingSpot);
+        }
+    }
+    
+    /**
+    Gets the call counts and timings of this car park's public operations.
+    **/
+    public CarParkMetrics getMetrics(){
+        return this.metrics;
+    }
+    
+    /**
+    Gets the live occupancy, turnover and dwell-time figures of this car park and its zones.
+    They are kept up to date as spots and cars change, so reading them scans nothing.
+    **/
+    public ParkingAnalytics getAnalytics(){
+        return this.analytics;
+    }
+    
+    /**
+    Starts the occupancy figures afresh from the spots and cars in the car park now, e.g. after it was restored
+    from disk, so the removals replayed from the log are not counted as departures at restore time.
+    Cars still parked count as arrivals at their parking times.
+    **/
+    public void resetAnalytics(){
+        analytics.clear();
+        for(ParkingSpot parkingSpot : parkingSpots){
+            analytics.spotAdded(parkingSpot.getIdentifier());
+            if(!parkingSpot.getStatus()) analytics.carParked(parkingSpot.getIdentifier(), parkingSpot.getParkedAt());
+        }
+    }
+    
+    /**
+    Fills an empty car park with spots read back from a ParkingSnapshot, in list order.
+    The spots go straight into the list and the lookup indexes, each index being built once, without the
+    per-spot checks, log records, metrics and events of addSpot and parkCar; the analytics are rebuilt
+    from the restored spots. Only ParkingSnapshot.load should call this.
+    @param restored the spots, each already holding its car if it was occupied
+    @throws IllegalStateException if the car park is not empty
+    @throws IllegalArgumentException if two spots share an identifier or two cars share a registration
+    **/
+    void restore(List<ParkingSpot> restored){
+        if(!parkingSpots.isEmpty()) throw new IllegalStateException("Spots can only be restored into an empty car park");
+        int capacity = (int)Math.min(Integer.MAX_VALUE, restored.size() * 4L / 3 + 1); // no rehashing while filling
+        HashMap<String, Integer> restoredSpots = new HashMap<String, Integer>(capacity);
+        HashMap<String, Integer> restoredCars = new HashMap<String, Integer>(capacity);
+        HashMap<String, ArrayList<ParkingSpot>> makes = new HashMap<String, ArrayList<ParkingSpot>>(); // make as spelt -> spots holding it
+        HashMap<String, ArrayList<ParkingSpot>> models = new HashMap<String, ArrayList<ParkingSpot>>();
+        ArrayList<ParkingSpot> vacant = new ArrayList<ParkingSpot>();
+        for(int i = 0; i < restored.size(); i++){
+            ParkingSpot parkingSpot = restored.get(i);
+            if(restoredSpots.put(parkingSpot.getIdentifier(), i) != null){
+                throw new IllegalArgumentException("Spot " + parkingSpot.getIdentifier() + " restored twice");
+            }
+            if(parkingSpot.getStatus()){
+                vacant.add(parkingSpot);
+                continue;
+            }
+            Car car = parkingSpot.getCar();
+            if(restoredCars.put(car.getRegistration(), i) != null){
+                throw new IllegalArgumentException("Car " + car.getRegistration() + " restored twice");
+            }
+            makes.computeIfAbsent(car.getMake(), (k) -> new ArrayList<ParkingSpot>()).add(parkingSpot);
+            models.computeIfAbsent(car.getModel(), (k) -> new ArrayList<ParkingSpot>()).add(parkingSpot);
+        }
+        parkingSpots.addAll(restored);
+        spotIndex = restoredSpots;
+        carIndex = restoredCars;
+        for(ParkingSpot parkingSpot : restored){
+            if(!parkingSpot.getStatus()) registrations.put(parkingSpot.getCar().getRegistration(), parkingSpot);
+        }
+        indexAll(makeIndex, makes);
+        indexAll(modelIndex, models);
+        vacancies.addAll(vacant);
+        if(allocation != null) vacant.forEach(allocation::spotVacant);
+        resetAnalytics();
+    }
+    
+    /**
+    Writes a snapshot of this car park and then empties the attached log, whose records the
+    snapshot now holds. On startup, load the snapshot and replay the log after its sequence number.
+    @param snapshot the snapshot file
+    @throws IOException if the snapshot cannot be written or the log cannot be truncated
+    **/
+    public void checkpoint(Path snapshot) throws IOException{
+        long sequence = log == null ? 0 : log.getSequence();
+        ParkingSnapshot.write(this, snapshot, sequence);
+        if(log != null) log.truncate();
     }
     
     /**
@@ -95,21 +274,19 @@ public class CarPark
     @return false if a parking spot with the same identifier already exists, true otherwise.
     **/
     public boolean addSpot(String identifier){
-        boolean exists = false;
-        for(int i = 0; i < parkingSpots.size(); i++){
-            if(parkingSpots.get(i).getIdentifier().equals(identifier)){
-                exists = true;
-                break;
-            }
-        }
-        
-        if(exists){
-            return false;
+        long start = System.nanoTime();
+        if(findSpot(identifier) >= 0){
+            return metrics.addSpot.record(start, false);
         }
         else{
+            if(log != null) log.addSpot(identifier);
             ParkingSpot parkingSpot = new ParkingSpot(identifier);
             parkingSpots.add(parkingSpot);
-            return true;
+            setSpotPosition(identifier, parkingSpots.size() - 1);
+            markVacant(parkingSpot);
+            analytics.spotAdded(identifier);
+            if(events != null) events.publish(ParkingEvents.SPOT_ADDED, identifier, null, clock.millis(), 0);
+            return metrics.addSpot.record(start, true);
         }
     }
     
@@ -119,19 +296,28 @@ public class CarPark
     @return 0 if slot doesn't exist, 1 if slot is not vacant, 2 othewise.
     **/
     public int deleteSpot(String spotIdentifier){
+        long start = System.nanoTime();
         int index = findSpot(spotIdentifier);
         if(index < 0){
-            return 0; // slot doesn't exist
+            return metrics.deleteSpot.record(start, 0); // slot doesn't exist
         }else if(!parkingSpots.get(index).getStatus()){
-            return 1; // slot is not empty
+            return metrics.deleteSpot.record(start, 1); // slot is not empty
         }else{
-            parkingSpots.remove(index);
-            return 2; // success
+            if(log != null) log.deleteSpot(spotIdentifier);
+            markTaken(parkingSpots.remove(index));
+            clearSpotPosition(spotIdentifier);
+            reservations.removeSpot(spotIdentifier);
+            reindexFrom(index); // spots after the removed one shifted down by one
+            analytics.spotRemoved(spotIdentifier);
+            if(events != null) events.publish(ParkingEvents.SPOT_REMOVED, spotIdentifier, null, clock.millis(), 0);
+            return metrics.deleteSpot.record(start, 2); // success
         }
     }
     
     /**
     Get method for ArrayList<ParkingSpot>.
+    The list is shared with the lookup indexes, so spots and cars should only be
+    added or removed through the CarPark methods, not through the list itself.
     @returns ArrayList of ParkingSpot objects containing information about all parking spots including 
     details of each parking spot (identifier, occupied status, car information if occupied etc.).
     **/
@@ -146,90 +332,418 @@ public class CarPark
     @param make the make of the car
     @param model the model of the car
     @param year the year of the car
-    @return 0 if slot doesn't exist, 1 if slot not vacant, 2 if car found in another slot, 3 otherwise.
+    @return 0 if slot doesn't exist, 1 if slot not vacant or reserved for another car now, 2 if car found in another slot, 3 otherwise.
     **/
     public int parkCar(String identifier, String registration, String make, String model, int year){
-        Car car = new Car(registration, make, model, Integer.toString(year));
+        long start = System.nanoTime();
+        Car car = new Car(registration, make, model, year);
         
         int index = findSpot(identifier);
         
         if(index < 0){
-            return 0; // slot doesn't exist
+            return metrics.parkCar.record(start, 0); // slot doesn't exist
         }else if(!parkingSpots.get(index).getStatus()){
-            return 1; // slot occupied already
+            return metrics.parkCar.record(start, 1); // slot occupied already
+        }else if(isReservedForOther(identifier, registration, clock.millis())){
+            return metrics.parkCar.record(start, 1); // slot held for another car
         }else{
             int carIndex = findCar(registration);
-            if(carIndex != -1) return 2; // car in another slot
+            if(carIndex != -1) return metrics.parkCar.record(start, 2); // car in another slot
             else{
-                parkingSpots.get(index).addCar(car);
-                return 3; // success
+                placeCar(index, car, clock.millis());
+                return metrics.parkCar.record(start, 3); // success
             }
         }
     }
     
+    /**
+    Parks a car in a specified parking spot with a known parking time, e.g. when restoring from a log.
+    Reservations are not checked, since the car was already let in.
+    @param identifier the identifier of the parking spot
+    @param car the car to be parked
+    @param parkedAt the parking time in epoch milliseconds
+    @return 0 if slot doesn't exist, 1 if slot not vacant, 2 if car found in another slot, 3 otherwise.
+    **/
+    public int parkCar(String identifier, Car car, long parkedAt){
+        long start = System.nanoTime();
+        int index = findSpot(identifier);
+        if(index < 0){
+            return metrics.parkCar.record(start, 0); // slot doesn't exist
+        }else if(!parkingSpots.get(index).getStatus()){
+            return metrics.parkCar.record(start, 1); // slot occupied already
+        }else if(findCar(car.getRegistration()) != -1){
+            return metrics.parkCar.record(start, 2); // car in another slot
+        }else{
+            placeCar(index, car, parkedAt);
+            return metrics.parkCar.record(start, 3); // success
+        }
+    }
+    
+    /**
+    Parks a car in a vacant parking spot, without the caller picking one.
+    The spot is picked by the allocation strategy if one is set, or else any spot is taken from the vacancy tracker,
+    so no spots are scanned. Spots reserved for other cars right now are passed over.
+    Use findCar(String registration) afterwards to learn which spot was used.
+    @param car the car to be parked
+    @return 0 if no spot is vacant (or every vacant spot is reserved for another car), 2 if car found in another slot, 3 otherwise.
+    **/
+    public int parkAnywhere(Car car){
+        long start = System.nanoTime();
+        ParkingSpot parkingSpot = allocation == null ? vacancies.peek() : allocation.pick();
+        if(parkingSpot != null && !reservations.isEmpty()){
+            long now = clock.millis();
+            ArrayList<ParkingSpot> held = new ArrayList<ParkingSpot>(); // vacant spots booked for other cars now
+            while(parkingSpot != null && isReservedForOther(parkingSpot.getIdentifier(), car.getRegistration(), now)){
+                held.add(parkingSpot);
+                markTaken(parkingSpot); // set aside so the next pick skips it
+                parkingSpot = allocation == null ? vacancies.peek() : allocation.pick();
+            }
+            held.forEach(this::markVacant);
+        }
+        if(parkingSpot == null){
+            return metrics.parkAnywhere.record(start, 0); // no vacant slot
+        }else if(findCar(car.getRegistration()) != -1){
+            return metrics.parkAnywhere.record(start, 2); // car in another slot
+        }else{
+            placeCar(findSpot(parkingSpot.getIdentifier()), car, clock.millis());
+            return metrics.parkAnywhere.record(start, 3); // success
+        }
+    }
+    
+    /**
+    Puts a car into the vacant spot at the given index and updates every index that tracks cars.
+    @param index the position of a vacant spot in the list
+    @param car the car to be parked
+    @param parkedAt the parking time in epoch milliseconds
+    **/
+    private void placeCar(int index, Car car, long parkedAt){
+        ParkingSpot parkingSpot = parkingSpots.get(index);
+        if(log != null) log.parkCar(parkingSpot.getIdentifier(), car, parkedAt);
+        parkingSpot.addCar(car, parkedAt);
+        setCarPosition(car.getRegistration(), index);
+        indexCar(parkingSpot);
+        markTaken(parkingSpot);
+        analytics.carParked(parkingSpot.getIdentifier(), parkedAt);
+        if(events != null) events.publish(ParkingEvents.CAR_PARKED, parkingSpot.getIdentifier(), car.getRegistration(), parkedAt, parkedAt);
+    }
+    
+    /**
+    Books a parking spot for a car over a time window. While the booking is active, parkCar and parkAnywhere
+    keep the spot for that car.
+    @param identifier the identifier of the parking spot
+    @param registration the registration of the car to hold the spot for
+    @param start the start of the window in epoch milliseconds
+    @param end the end of the window in epoch milliseconds, exclusive
+    @return 0 if slot doesn't exist, 1 if slot already booked in the window (or taken by another car for a window starting now), 2 otherwise.
+    @throws IllegalArgumentException if the window does not end after it starts
+    **/
+    public int reserve(String identifier, String registration, long start, long end){
+        if(end <= start) throw new IllegalArgumentException("Reservation must end after it starts: " + start + " to " + end);
+        int index = findSpot(identifier);
+        if(index < 0){
+            return 0; // slot doesn't exist
+        }
+        ParkingSpot parkingSpot = parkingSpots.get(index);
+        if(start <= clock.millis() && !parkingSpot.getStatus() && !parkingSpot.getCar().getRegistration().equals(registration)){
+            return 1; // another car is in the slot already
+        }else if(!reservations.isFree(identifier, start, end)){
+            return 1; // slot booked in the window
+        }else{
+            if(log != null) log.reserve(identifier, registration, start, end);
+            reservations.reserve(identifier, registration, start, end);
+            return 2; // success
+        }
+    }
+    
+    /**
+    Cancels the booking of a spot that starts at a given time.
+    @param identifier the identifier of the parking spot
+    @param start the start of the booking's window in epoch milliseconds
+    @return false if there is no such booking, true otherwise.
+    **/
+    public boolean cancelReservation(String identifier, long start){
+        if(reservations.get(identifier, start) == null){
+            return false; // no such booking
+        }
+        if(log != null) log.cancelReservation(identifier, start);
+        reservations.cancel(identifier, start);
+        return true;
+    }
+    
+    /**
+    Gets the advance bookings of this car park's spots, e.g. to list a spot's bookings or forget expired ones.
+    Bookings made or cancelled through the book itself are not logged; use reserve and cancelReservation for that.
+    **/
+    public ReservationBook getReservations(){
+        return this.reservations;
+    }
+    
+    /**
+    Gets the identifiers of the spots booked at any time during a window.
+    The booked spots are found through the reservation calendar, so the cost depends on the bookings near
+    the window, not on the number of spots. Prefer this to getFreeIdentifiers on large car parks.
+    @param start the start of the window in epoch milliseconds
+    @param end the end of the window in epoch milliseconds, exclusive
+    @return the identifiers of the booked spots
+    **/
+    public HashSet<String> getReservedIdentifiers(long start, long end){
+        return reservations.getReservedIdentifiers(start, end);
+    }
+    
+    /**
+    Gets the identifiers of the spots with no booking at any time during a window.
+    The booked spots are found through the reservation calendar, but every spot is then visited to list the
+    others, so this takes O(n) time for n spots; use getReservedIdentifiers when only the booked ones are needed.
+    Spots occupied now are included, since when a car will leave is not known.
+    @param start the start of the window in epoch milliseconds
+    @param end the end of the window in epoch milliseconds, exclusive
+    @return an array of free spot identifiers, in list order
+    **/
+    public String[] getFreeIdentifiers(long start, long end){
+        HashSet<String> reserved = reservations.getReservedIdentifiers(start, end);
+        String[] free = new String[parkingSpots.size() - reserved.size()];
+        int count = 0;
+        for(ParkingSpot parkingSpot : parkingSpots){
+            if(!reserved.contains(parkingSpot.getIdentifier())) free[count++] = parkingSpot.getIdentifier();
+        }
+        return free;
+    }
+    
+    /**
+    Checks if a spot is booked right now for a car other than the given one.
+    **/
+    private boolean isReservedForOther(String identifier, String registration, long now){
+        if(reservations.isEmpty()) return false;
+        Reservation reservation = reservations.getActive(identifier, now);
+        return reservation != null && !reservation.getRegistration().equals(registration);
+    }
+    
+    /**
+    Records that a spot became vacant in the vacancy tracker and the allocation strategy.
+    **/
+    private void markVacant(ParkingSpot parkingSpot){
+        vacancies.add(parkingSpot);
+        if(allocation != null) allocation.spotVacant(parkingSpot);
+    }
+    
+    /**
+    Records that a spot stopped being vacant in the vacancy tracker and the allocation strategy.
+    **/
+    private void markTaken(ParkingSpot parkingSpot){
+        vacancies.remove(parkingSpot);
+        if(allocation != null) allocation.spotTaken(parkingSpot);
+    }
+    
+    /**
+    Gets the number of vacant parking spots.
+    @return the vacant spot count
+    **/
+    public int getVacantCount(){
+        return vacancies.count();
+    }
+    
+    /**
+    Gets the identifiers of all vacant parking spots, without scanning the occupied ones.
+    @return an array of vacant spot identifiers, in no particular order
+    **/
+    public String[] getVacantIdentifiers(){
+        return vacancies.identifiers();
+    }
+    
     /**
     Finds the index of a parking spot in the list based on its identifier.
+    Looks the identifier up in spotIndex instead of scanning the list.
     @param identifier the identifier of the parking spot
     @return the index of the parking spot in the list, or -1 if not found
     **/
     public int findSpot(String identifier){
-        int index = -1;
-        for(int i = 0; i < parkingSpots.size(); i++){
-            if(parkingSpots.get(i).getIdentifier().equals(identifier)){
-                index = i;
-                break;
-            }
-        }
-        return index;
+        Integer index = spotIndex.get(identifier);
+        return index == null ? -1 : index;
     }
     
     /**
     Finds the index of a parking spot in the list based on its parked car registration.
+    Looks the registration up in carIndex instead of scanning the list.
     @param registration of the car
     @return the index of the parking spot in the list, or -1 if not found
     **/
     public int findCar(String registration){
-        int index = -1;
-        for(int i = 0; i < parkingSpots.size(); i++){
-            if(!parkingSpots.get(i).getStatus()){
-                if(parkingSpots.get(i).getCar().getRegistration().equals(registration)){
-                    index = i;
-                    break;
-                }
+        Integer index = carIndex.get(registration);
+        return index == null ? -1 : index;
+    }
+    
+    /**
+    Records the list position of a spot.
+    **/
+    private void setSpotPosition(String identifier, int index){
+        spotIndex.put(identifier, index);
+    }
+    
+    /**
+    Forgets the list position of a spot.
+    **/
+    private void clearSpotPosition(String identifier){
+        spotIndex.remove(identifier);
+    }
+    
+    /**
+    Records the list position of the spot holding a car.
+    **/
+    private void setCarPosition(String registration, int index){
+        carIndex.put(registration, index);
+    }
+    
+    /**
+    Forgets the position of a car.
+    **/
+    private void clearCarPosition(String registration){
+        carIndex.remove(registration);
+    }
+    
+    /**
+    Rewrites the recorded spot and car positions of every spot from the given index onwards.
+    Called after a spot is removed from the list, since every later spot moves down by one.
+    @param from the first list position whose entries need updating
+    **/
+    private void reindexFrom(int from){
+        for(int i = from; i < parkingSpots.size(); i++){
+            ParkingSpot parkingSpot = parkingSpots.get(i);
+            setSpotPosition(parkingSpot.getIdentifier(), i);
+            if(!parkingSpot.getStatus()){
+                setCarPosition(parkingSpot.getCar().getRegistration(), i);
             }
         }
-        return index;
     }
     
     /**
-    Uses findCar(String registration) function to find a car and sets highlight variable of Parking Spot to true.
+    Adds the car parked in the given spot to the make, model and registration indexes.
+    Must be called right after ParkingSpot.addCar.
+    @param parkingSpot the spot that just received a car
+    **/
+    private void indexCar(ParkingSpot parkingSpot){
+        Car car = parkingSpot.getCar();
+        registrations.put(car.getRegistration(), parkingSpot);
+        makeIndex.computeIfAbsent(car.getMake(), (k) -> new HashSet<ParkingSpot>()).add(parkingSpot);
+        modelIndex.computeIfAbsent(car.getModel(), (k) -> new HashSet<ParkingSpot>()).add(parkingSpot);
+    }
+    
+    /**
+    Removes the car parked in the given spot from the make, model and registration indexes.
+    Must be called right before ParkingSpot.removeCar.
+    @param parkingSpot the spot whose car is about to leave
+    **/
+    private void unindexCar(ParkingSpot parkingSpot){
+        Car car = parkingSpot.getCar();
+        registrations.remove(car.getRegistration());
+        unindex(makeIndex, car.getMake(), parkingSpot);
+        unindex(modelIndex, car.getModel(), parkingSpot);
+    }
+    
+    /**
+    Removes a spot from one entry of an inverted index, dropping the entry once it is empty.
+    **/
+    private void unindex(TreeMap<String, HashSet<ParkingSpot>> index, String key, ParkingSpot parkingSpot){
+        HashSet<ParkingSpot> spots = index.get(key);
+        if(spots != null){
+            spots.remove(parkingSpot);
+            if(spots.isEmpty()) index.remove(key);
+        }
+    }
+    
+    /**
+    Uses findCar(String registration) function to find a car and adds its Parking Spot to the current search result.
     @param registration of the car
     @return true if car found, false otherwise.
     **/
     public boolean findCarByRegistration(String registration){
+        return findCarByRegistration(registration, currentSearch);
+    }
+    
+    /**
+    Uses findCar(String registration) function to find a car and adds its Parking Spot to the given search result.
+    @param registration of the car
+    @param result the search result to add the match to
+    @return true if car found, false otherwise.
+    **/
+    public boolean findCarByRegistration(String registration, SearchResult result){
+        long start = System.nanoTime();
         int index = findCar(registration);
         
         if(index < 0){
-            return false; // car not found || doesn't exist
+            return metrics.findCarByRegistration.record(start, false); // car not found || doesn't exist
         }else{
-            parkingSpots.get(index).setHighlightSpot(true);
-            return true; // success
+            result.add(parkingSpots.get(index));
+            return metrics.findCarByRegistration.record(start, true); // success
         }
     }
     
     /**
-    Uses findSpot(String identifier) function to find a identifier and sets highlight variable of Parking Spot to true.
+    Finds every car whose registration starts with a prefix, e.g. a partial plate read, and adds their Parking Spots to the current search result.
+    @param prefix the start of the registration
+    @return true if any car found, false otherwise.
+    **/
+    public boolean findCarByRegistrationPrefix(String prefix){
+        return findCarByRegistrationPrefix(prefix, currentSearch);
+    }
+    
+    /**
+    Finds every car whose registration starts with a prefix and adds their Parking Spots to the given search result.
+    Only the registrations under the prefix in the registration trie are visited.
+    @param prefix the start of the registration
+    @param result the search result to add the matches to
+    @return true if any car found, false otherwise.
+    **/
+    public boolean findCarByRegistrationPrefix(String prefix, SearchResult result){
+        long start = System.nanoTime();
+        return metrics.findRegistrationPrefix.record(start, registrations.findPrefix(prefix, result) > 0);
+    }
+    
+    /**
+    Finds every car whose registration is the given one or one misread character away from it
+    (a character replaced, missing or extra), and adds their Parking Spots to the current search result.
+    @param registration the registration as read, e.g. T1Z34
+    @return true if any car found, false otherwise.
+    **/
+    public boolean findCarByRegistrationFuzzy(String registration){
+        return findCarByRegistrationFuzzy(registration, currentSearch);
+    }
+    
+    /**
+    Finds every car whose registration is the given one or one misread character away from it,
+    and adds their Parking Spots to the given search result.
+    @param registration the registration as read
+    @param result the search result to add the matches to
+    @return true if any car found, false otherwise.
+    **/
+    public boolean findCarByRegistrationFuzzy(String registration, SearchResult result){
+        long start = System.nanoTime();
+        return metrics.findRegistrationFuzzy.record(start, registrations.findWithinOneEdit(registration, result) > 0);
+    }
+    
+    /**
+    Uses findSpot(String identifier) function to find a identifier and adds its Parking Spot to the current search result.
     @param identifier of the Spot
     @return true if identifier found, false otherwise.
     **/
     public boolean findIdentifier(String identifier){
+        return findIdentifier(identifier, currentSearch);
+    }
+    
+    /**
+    Uses findSpot(String identifier) function to find a identifier and adds its Parking Spot to the given search result.
+    @param identifier of the Spot
+    @param result the search result to add the match to
+    @return true if identifier found, false otherwise.
+    **/
+    public boolean findIdentifier(String identifier, SearchResult result){
+        long start = System.nanoTime();
         int index = findSpot(identifier);
         
         if(index < 0){
-            return false; // identifier not found || doesn't exist
+            return metrics.findIdentifier.record(start, false); // identifier not found || doesn't exist
         }else{
-            parkingSpots.get(index).setHighlightSpot(true);
-            return true; // success
+            result.add(parkingSpots.get(index));
+            return metrics.findIdentifier.record(start, true); // success
         }
     }
     
@@ -240,78 +754,401 @@ public class CarPark
     @return false if car doesnt't exist, true othewise.
     **/
     public boolean removeCarByRegistration(String registration){
+        return checkOut(registration) >= 0;
+    }
+    
+    /**
+    Removes a car from parking and charges it by the tariff for the time it was parked.
+    @param registration of the car
+    @return -1 if car doesnt't exist, the charge in cents othewise (0 if no tariff is set).
+    **/
+    public long checkOut(String registration){
+        return checkOut(registration, clock.millis());
+    }
+    
+    /**
+    Removes a car from parking at a known time and charges it, e.g. when replaying a log written before a restart.
+    @param registration of the car
+    @param removedAt the removal time in epoch milliseconds
+    @return -1 if car doesnt't exist, the charge in cents othewise (0 if no tariff is set).
+    **/
+    public long checkOut(String registration, long removedAt){
+        long start = System.nanoTime();
         int index = findCar(registration);
         if(index < 0){
-            return false; // car doesnt exist
+            metrics.removeCar.record(start, false); // car doesnt exist
+            return -1;
         }else{
-            parkingSpots.get(index).removeCar();
-            return true; // success
+            long charge = takeCar(index, removedAt);
+            metrics.removeCar.record(start, true); // success
+            return charge;
         }
     }
     
     /**
-    Searches for a car by its make in the car park, sets highlight variable of Parking Spot to true if found.
+    Removes the car from the spot at the given index and updates every index that tracks cars.
+    @param index the position of an occupied spot in the list
+    @param now the removal time in epoch milliseconds
+    @return the charge for the stay in cents, 0 if no tariff is set
+    **/
+    private long takeCar(int index, long now){
+        ParkingSpot parkingSpot = parkingSpots.get(index);
+        String registration = parkingSpot.getCar().getRegistration();
+        if(log != null) log.removeCar(registration, now);
+        unindexCar(parkingSpot);
+        clearCarPosition(registration);
+        long parkedAt = parkingSpot.getParkedAt();
+        parkingSpot.removeCar();
+        markVacant(parkingSpot);
+        long charge = tariff == null ? 0 : tariff.price(parkedAt, now);
+        if(sessions != null) sessions.add(parkingSpot.getIdentifier(), registration, parkedAt, now, charge);
+        analytics.carRemoved(parkingSpot.getIdentifier(), parkedAt, now);
+        if(events != null) events.publish(ParkingEvents.CAR_REMOVED, parkingSpot.getIdentifier(), registration, now, parkedAt);
+        return charge;
+    }
+    
+    /**
+    Searches for a car by its make in the car park, adds the matching Parking Spots to the current search result.
+    The make is matched ignoring case through makeIndex, so only matching spots are visited.
     @param the make of the car to search for (e.g., Toyota, Honda)
     @return true if found, false otherwise.
     **/
     public boolean findCarByMake(String make){
-        int index = -1;
-        for(int i = 0; i < parkingSpots.size(); i++){
-            if(!parkingSpots.get(i).getStatus()){
-                if(parkingSpots.get(i).getCar().getMake().toLowerCase().equals(make.toLowerCase())){
-                    index = i;
-                    parkingSpots.get(i).setHighlightSpot(true);
-                }
-            }
-            
-        }
-        
-        if(index < 0){
-            return false;
-        }else{
-            return true;    
-        }
+        return findCarByMake(make, currentSearch);
     }
     
     /**
-    Searches for a car by its model in the car park, sets highlight variable of Parking Spot to true if found.
+    Searches for a car by its make in the car park, adds the matching Parking Spots to the given search result.
+    @param the make of the car to search for (e.g., Toyota, Honda)
+    @param result the search result to add the matches to
+    @return true if found, false otherwise.
+    **/
+    public boolean findCarByMake(String make, SearchResult result){
+        long start = System.nanoTime();
+        return metrics.findCarByMake.record(start, highlightAll(makeIndex.get(make), result));
+    }
+    
+    /**
+    Searches for a car by its model in the car park, adds the matching Parking Spots to the current search result.
+    The model is matched ignoring case through modelIndex, so only matching spots are visited.
     @param the model of the car to search for (e.g., Corolla)
     @return true if found, false otherwise.
     **/
     public boolean findCarByModel(String model){
-        int index = -1;
-        for(int i = 0; i < parkingSpots.size(); i++){
-            if(!parkingSpots.get(i).getStatus()){
-                if(parkingSpots.get(i).getCar().getModel().toLowerCase().equals(model.toLowerCase())){
-                    index = i;
-                    parkingSpots.get(i).setHighlightSpot(true);
-                }
-            }
-            
-        }
-        
-        if(index < 0){
+        return findCarByModel(model, currentSearch);
+    }
+    
+    /**
+    Searches for a car by its model in the car park, adds the matching Parking Spots to the given search result.
+    @param the model of the car to search for (e.g., Corolla)
+    @param result the search result to add the matches to
+    @return true if found, false otherwise.
+    **/
+    public boolean findCarByModel(String model, SearchResult result){
+        long start = System.nanoTime();
+        return metrics.findCarByModel.record(start, highlightAll(modelIndex.get(model), result));
+    }
+    
+    /**
+    Adds every given Parking Spot to a search result.
+    @param spots the matching spots from an inverted index, or null if nothing matched
+    @param result the search result to add the matches to
+    @return true if any spot was highlighted, false otherwise.
+    **/
+    private boolean highlightAll(HashSet<ParkingSpot> spots, SearchResult result){
+        if(spots == null){
             return false; // car doesn't exist || not found
-        }else{
-            return true; // success
         }
+        result.addAll(spots);
+        return true; // success
     }
     
     /**
     Removes all the car from all objects in parkingSpots arraylist.
     **/
     public void reset(){
+        reset(clock.millis());
+    }
+    
+    /**
+    Removes all the cars at a known time, e.g. when replaying a log written before a restart.
+    @param now the removal time in epoch milliseconds
+    **/
+    public void reset(long now){
+        long start = System.nanoTime();
+        if(log != null) log.reset(now);
         parkingSpots.forEach((e) -> {
+            if(!e.getStatus()){
+                analytics.carRemoved(e.getIdentifier(), e.getParkedAt(), now);
+                if(events != null) events.publish(ParkingEvents.CAR_REMOVED, e.getIdentifier(), e.getCar().getRegistration(), now, e.getParkedAt());
+            }
             e.removeCar();
         });
+        carIndex.clear();
+        makeIndex.clear();
+        registrations.clear();
+        modelIndex.clear();
+        vacancies.clear();
+        if(allocation != null) allocation.clear();
+        parkingSpots.forEach(this::markVacant);
+        metrics.reset.record(start);
     }
     
     /**
-    Resets highlight spot to false from all objects in parkingSpots arraylist.
+    Gets the current search result, i.e. the spots to highlight.
+    **/
+    public SearchResult getSearchResult(){
+        return this.currentSearch;
+    }
+    
+    /**
+    Clears the search highlights by starting a new, empty search result.
+    No spot is visited, so this takes the same time however large the car park is.
     **/
     public void resetSearch(){
-        parkingSpots.forEach((e) -> {
-            e.setHighlightSpot(false);
+        long start = System.nanoTime();
+        currentSearch = new SearchResult();
+        metrics.resetSearch.record(start);
+    }
+    
+    /**
+    Adds many parking spots at once, e.g. when onboarding a new lot.
+    Every identifier is checked first, then the accepted spots are appended to the list and handed to the
+    vacancy tracker together. Each identifier gets the same result addSpot would give if they were added one by one in order.
+    @param identifiers the identifiers of the spots to add
+    @return for each identifier, false if a spot with that identifier already exists, true otherwise.
+    **/
+    public boolean[] addSpots(List<String> identifiers){
+        long start = System.nanoTime();
+        boolean[] results = new boolean[identifiers.size()];
+        HashSet<String> accepted = new HashSet<String>(); // identifiers added earlier in this batch
+        for(int i = 0; i < results.length; i++){
+            String identifier = identifiers.get(i);
+            results[i] = findSpot(identifier) < 0 && accepted.add(identifier);
+        }
+        
+        ArrayList<ParkingSpot> added = new ArrayList<ParkingSpot>(accepted.size());
+        parkingSpots.ensureCapacity(parkingSpots.size() + accepted.size());
+        for(int i = 0; i < results.length; i++){
+            if(!results[i]) continue;
+            String identifier = identifiers.get(i);
+            if(log != null) log.addSpot(identifier);
+            ParkingSpot parkingSpot = new ParkingSpot(identifier);
+            parkingSpots.add(parkingSpot);
+            setSpotPosition(identifier, parkingSpots.size() - 1);
+            analytics.spotAdded(identifier);
+            added.add(parkingSpot);
+        }
+        vacancies.addAll(added);
+        if(allocation != null) added.forEach(allocation::spotVacant);
+        if(events != null){
+            long now = clock.millis();
+            for(ParkingSpot parkingSpot : added){
+                events.publish(ParkingEvents.SPOT_ADDED, parkingSpot.getIdentifier(), null, now, 0);
+            }
+        }
+        metrics.addSpot.record(start, results);
+        return results;
+    }
+    
+    /**
+    Deletes many parking spots at once.
+    All spots are checked first, then removed from the list in a single pass and the
+    positions of the remaining spots are rewritten once, instead of once per deleted spot.
+    @param spotIdentifiers the identifiers of the spots to delete
+    @return for each identifier, 0 if slot doesn't exist, 1 if slot is not vacant, 2 othewise.
+    **/
+    public int[] deleteSpots(List<String> spotIdentifiers){
+        long start = System.nanoTime();
+        int[] results = new int[spotIdentifiers.size()];
+        HashSet<ParkingSpot> doomed = new HashSet<ParkingSpot>(); // spots that pass the checks
+        int first = parkingSpots.size(); // lowest position being removed
+        for(int i = 0; i < results.length; i++){
+            int index = findSpot(spotIdentifiers.get(i));
+            if(index < 0 || doomed.contains(parkingSpots.get(index))){
+                results[i] = 0; // slot doesn't exist, or already deleted earlier in this batch
+            }else if(!parkingSpots.get(index).getStatus()){
+                results[i] = 1; // slot is not empty
+            }else{
+                doomed.add(parkingSpots.get(index));
+                first = Math.min(first, index);
+                results[i] = 2; // success
+            }
+        }
+        
+        if(!doomed.isEmpty()){
+            for(ParkingSpot parkingSpot : doomed){
+                if(log != null) log.deleteSpot(parkingSpot.getIdentifier());
+                markTaken(parkingSpot);
+                clearSpotPosition(parkingSpot.getIdentifier());
+                reservations.removeSpot(parkingSpot.getIdentifier());
+                analytics.spotRemoved(parkingSpot.getIdentifier());
+            }
+            parkingSpots.removeIf(doomed::contains);
+            reindexFrom(first);
+            if(events != null){
+                long now = clock.millis();
+                for(ParkingSpot parkingSpot : doomed){
+                    events.publish(ParkingEvents.SPOT_REMOVED, parkingSpot.getIdentifier(), null, now, 0);
+                }
+            }
+        }
+        metrics.deleteSpot.record(start, results);
+        return results;
+    }
+    
+    /**
+    Parks many cars at once, e.g. when replaying a barrier log.
+    Each car gets the same result parkCar would give if they were parked one by one in order.
+    @param identifiers the identifiers of the spots to park in
+    @param cars the cars to park, one per identifier
+    @return for each car, 0 if slot doesn't exist, 1 if slot not vacant or reserved for another car now, 2 if car found in another slot, 3 otherwise.
+    **/
+    public int[] parkCars(List<String> identifiers, List<Car> cars){
+        long[] parkedAts = new long[cars.size()];
+        Arrays.fill(parkedAts, -1); // park them all now
+        return parkCars(identifiers, cars, parkedAts);
+    }
+    
+    /**
+    Parks many cars at once, some with known parking times, e.g. when importing a lot.
+    Every car is checked first against the car park and the cars before it in the batch, then the accepted cars
+    are placed and the make and model indexes are updated once per distinct make and model rather than once per car.
+    Reservations are only checked for the cars parked now, since the others were already let in.
+    @param identifiers the identifiers of the parking spots, one per car
+    @param cars the cars to be parked
+    @param parkedAts the parking time of each car in epoch milliseconds, or -1 to park it now
+    @return for each car, in order, 0 if slot doesn't exist, 1 if slot not vacant (or reserved for another car, when parked now), 2 if car found in another slot, 3 otherwise.
+    **/
+    public int[] parkCars(List<String> identifiers, List<Car> cars, long[] parkedAts){
+        long start = System.nanoTime();
+        if(identifiers.size() != cars.size() || parkedAts.length != cars.size()){
+            throw new IllegalArgumentException("Expected one identifier and parking time per car");
+        }
+        long now = clock.millis();
+        long[] times = new long[cars.size()]; // parking time of each car, with now filled in
+        for(int i = 0; i < times.length; i++) times[i] = parkedAts[i] < 0 ? now : parkedAts[i];
+        int[] results = new int[cars.size()];
+        int[] positions = new int[cars.size()]; // list position of each accepted car's spot
+        boolean[] claimed = new boolean[parkingSpots.size()]; // spots taken earlier in this batch
+        HashSet<String> arriving = new HashSet<String>(); // registrations parked earlier in this batch
+        for(int i = 0; i < results.length; i++){
+            String registration = cars.get(i).getRegistration();
+            int index = findSpot(identifiers.get(i));
+            if(index < 0){
+                results[i] = 0; // slot doesn't exist
+            }else if(!parkingSpots.get(index).getStatus() || claimed[index]){
+                results[i] = 1; // slot occupied already
+            }else if(parkedAts[i] < 0 && isReservedForOther(identifiers.get(i), registration, now)){
+                results[i] = 1; // slot held for another car
+            }else if(findCar(registration) != -1 || !arriving.add(registration)){
+                results[i] = 2; // car in another slot
+            }else{
+                claimed[index] = true;
+                positions[i] = index;
+                results[i] = 3; // success
+            }
+        }
+        
+        HashMap<String, ArrayList<ParkingSpot>> makes = new HashMap<String, ArrayList<ParkingSpot>>(); // make as spelt -> spots receiving it
+        HashMap<String, ArrayList<ParkingSpot>> models = new HashMap<String, ArrayList<ParkingSpot>>();
+        for(int i = 0; i < results.length; i++){
+            if(results[i] != 3) continue;
+            ParkingSpot parkingSpot = parkingSpots.get(positions[i]);
+            Car car = cars.get(i);
+            if(log != null) log.parkCar(parkingSpot.getIdentifier(), car, times[i]);
+            parkingSpot.addCar(car, times[i]);
+            setCarPosition(car.getRegistration(), positions[i]);
+            registrations.put(car.getRegistration(), parkingSpot);
+            makes.computeIfAbsent(car.getMake(), (k) -> new ArrayList<ParkingSpot>()).add(parkingSpot);
+            models.computeIfAbsent(car.getModel(), (k) -> new ArrayList<ParkingSpot>()).add(parkingSpot);
+            markTaken(parkingSpot);
+            analytics.carParked(parkingSpot.getIdentifier(), times[i]);
+        }
+        indexAll(makeIndex, makes);
+        indexAll(modelIndex, models);
+        if(events != null){
+            for(int i = 0; i < results.length; i++){
+                if(results[i] != 3) continue;
+                ParkingSpot parkingSpot = parkingSpots.get(positions[i]);
+                events.publish(ParkingEvents.CAR_PARKED, parkingSpot.getIdentifier(), cars.get(i).getRegistration(), times[i], times[i]);
+            }
+        }
+        metrics.parkCar.record(start, results);
+        return results;
+    }
+    
+    /**
+    Removes many cars at once.
+    Every registration is checked first, then the cars are taken out and the make and model indexes are
+    updated once per distinct make and model rather than once per car.
+    @param leavingRegistrations the registrations of the cars to remove
+    @return for each registration, false if car doesnt't exist, true othewise.
+    **/
+    public boolean[] removeCarsByRegistration(List<String> leavingRegistrations){
+        long start = System.nanoTime();
+        boolean[] results = new boolean[leavingRegistrations.size()];
+        int[] positions = new int[leavingRegistrations.size()]; // list position of each leaving car's spot
+        HashSet<String> leaving = new HashSet<String>(); // registrations removed earlier in this batch
+        for(int i = 0; i < results.length; i++){
+            positions[i] = findCar(leavingRegistrations.get(i));
+            results[i] = positions[i] >= 0 && leaving.add(leavingRegistrations.get(i));
+        }
+        
+        HashMap<String, ArrayList<ParkingSpot>> makes = new HashMap<String, ArrayList<ParkingSpot>>(); // make as spelt -> spots losing it
+        HashMap<String, ArrayList<ParkingSpot>> models = new HashMap<String, ArrayList<ParkingSpot>>();
+        ArrayList<ParkingSpot> emptied = new ArrayList<ParkingSpot>(leaving.size());
+        long[] parkedAts = new long[results.length];
+        long now = clock.millis();
+        for(int i = 0; i < results.length; i++){
+            if(!results[i]) continue;
+            ParkingSpot parkingSpot = parkingSpots.get(positions[i]);
+            Car car = parkingSpot.getCar();
+            if(log != null) log.removeCar(car.getRegistration(), now);
+            registrations.remove(car.getRegistration());
+            makes.computeIfAbsent(car.getMake(), (k) -> new ArrayList<ParkingSpot>()).add(parkingSpot);
+            models.computeIfAbsent(car.getModel(), (k) -> new ArrayList<ParkingSpot>()).add(parkingSpot);
+            clearCarPosition(car.getRegistration());
+            parkedAts[i] = parkingSpot.getParkedAt();
+            parkingSpot.removeCar();
+            long charge = tariff == null ? 0 : tariff.price(parkedAts[i], now);
+            if(sessions != null) sessions.add(parkingSpot.getIdentifier(), car.getRegistration(), parkedAts[i], now, charge);
+            analytics.carRemoved(parkingSpot.getIdentifier(), parkedAts[i], now);
+            emptied.add(parkingSpot);
+        }
+        unindexAll(makeIndex, makes);
+        unindexAll(modelIndex, models);
+        vacancies.addAll(emptied);
+        if(allocation != null) emptied.forEach(allocation::spotVacant);
+        if(events != null){
+            for(int i = 0; i < results.length; i++){
+                if(results[i]) events.publish(ParkingEvents.CAR_REMOVED, parkingSpots.get(positions[i]).getIdentifier(), leavingRegistrations.get(i), now, parkedAts[i]);
+            }
+        }
+        metrics.removeCar.record(start, results);
+        return results;
+    }
+    
+    /**
+    Adds groups of spots to an inverted index, looking each key up once however many spots it has.
+    **/
+    private void indexAll(TreeMap<String, HashSet<ParkingSpot>> index, HashMap<String, ArrayList<ParkingSpot>> groups){
+        groups.forEach((key, spots) -> {
+            HashSet<ParkingSpot> indexed = index.get(key);
+            if(indexed == null) index.put(key, new HashSet<ParkingSpot>(spots)); // sized for the whole group up front
+            else indexed.addAll(spots);
+        });
+    }
+    
+    /**
+    Removes groups of spots from an inverted index, looking each key up once and dropping the entries left empty.
+    **/
+    private void unindexAll(TreeMap<String, HashSet<ParkingSpot>> index, HashMap<String, ArrayList<ParkingSpot>> groups){
+        groups.forEach((key, spots) -> {
+            HashSet<ParkingSpot> indexed = index.get(key);
+            if(indexed == null) return;
+            for(ParkingSpot parkingSpot : spots) indexed.remove(parkingSpot);
+            if(indexed.isEmpty()) index.remove(key);
         });
     }
 }
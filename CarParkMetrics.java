@@ -0,0 +1,87 @@
+/**
+ * This class holds the call counts and timings of the public CarPark operations, one OperationStats each.
+ * CarPark updates them on every call, and counts each item of a batch call (addSpots, parkCars...) as one call
+ * of the single-item operation; register() publishes them as MBeans so JConsole or any other JMX
+ * client can read them, and the GUI's stats view reads the same objects.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class CarParkMetrics
+{
+    final public OperationStats addSpot = new OperationStats("addSpot");
+    final public OperationStats deleteSpot = new OperationStats("deleteSpot");
+    final public OperationStats parkCar = new OperationStats("parkCar");
+    final public OperationStats parkAnywhere = new OperationStats("parkAnywhere");
+    final public OperationStats removeCar = new OperationStats("removeCarByRegistration");
+    final public OperationStats findCarByRegistration = new OperationStats("findCarByRegistration");
+    final public OperationStats findRegistrationPrefix = new OperationStats("findCarByRegistrationPrefix");
+    final public OperationStats findRegistrationFuzzy = new OperationStats("findCarByRegistrationFuzzy");
+    final public OperationStats findIdentifier = new OperationStats("findIdentifier");
+    final public OperationStats findCarByMake = new OperationStats("findCarByMake");
+    final public OperationStats findCarByModel = new OperationStats("findCarByModel");
+    final public OperationStats reset = new OperationStats("reset");
+    final public OperationStats resetSearch = new OperationStats("resetSearch");
+
+    private ArrayList<OperationStats> operations; // every field above, in order
+
+    /**
+    Constructor that initializes empty statistics for every operation.
+    **/
+    public CarParkMetrics()
+    {
+        this.operations = new ArrayList<OperationStats>(List.of(addSpot, deleteSpot, parkCar, parkAnywhere, removeCar,
+            findCarByRegistration, findRegistrationPrefix, findRegistrationFuzzy, findIdentifier, findCarByMake, findCarByModel, reset, resetSearch));
+    }
+
+    /**
+    Gets the statistics of every operation.
+    **/
+    public List<OperationStats> getOperations(){
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+    Forgets every recorded call, e.g. after a car park was restored from disk.
+    **/
+    public void reset(){
+        operations.forEach(OperationStats::reset);
+    }
+
+    /**
+    Publishes every operation's statistics as an MBean named CarPark:type=Operation,carPark=[name],name=[operation].
+    @param carParkName distinguishes this car park from others in the same JVM
+    @throws JMException if the MBeans cannot be registered, e.g. because the name is already taken
+    **/
+    public void register(String carParkName) throws JMException{
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for(OperationStats operation : operations){
+            server.registerMBean(operation, objectName(carParkName, operation));
+        }
+    }
+
+    /**
+    Removes the MBeans published by register().
+    @param carParkName the name passed to register()
+    @throws JMException if the MBeans cannot be unregistered
+    **/
+    public void unregister(String carParkName) throws JMException{
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for(OperationStats operation : operations){
+            ObjectName name = objectName(carParkName, operation);
+            if(server.isRegistered(name)) server.unregisterMBean(name);
+        }
+    }
+
+    private static ObjectName objectName(String carParkName, OperationStats operation) throws JMException{
+        return new ObjectName("CarPark:type=Operation,carPark=" + ObjectName.quote(carParkName) + ",name=" + operation.getName());
+    }
+}
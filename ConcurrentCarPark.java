@@ -0,0 +1,301 @@
+/**
+ * This class represents a car park that several gate terminals can use at the same time.
+ * It offers the same operations and return codes as CarPark, but is safe to call from many threads.
+ *
+ * There is no car-park-wide lock. Each parking spot is its own lock, so gates working on different spots
+ * never wait for each other. Registration uniqueness is kept by claiming the registration with an atomic
+ * putIfAbsent on a concurrent map while holding the spot's lock, so two gates can never park the same
+ * car twice or put two cars in one spot.
+ *
+ * Advance reservations are kept per spot, in a ReservationBook holding only that spot's bookings, and are
+ * only read or changed under the spot's lock, so checking a booking while parking adds no shared lock either.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentCarPark
+{
+    private ConcurrentHashMap<String, ParkingSpot> spots; // spot identifier -> spot
+    private ConcurrentHashMap<String, ParkingSpot> cars; // car registration -> spot holding the car
+    private ConcurrentHashMap<String, Set<ParkingSpot>> makeIndex; // lower-cased make -> spots holding that make
+    private ConcurrentHashMap<String, Set<ParkingSpot>> modelIndex; // lower-cased model -> spots holding that model
+    private ConcurrentHashMap<String, ReservationBook> reservations; // spot identifier -> bookings of that spot, guarded by the spot's lock
+    private LongAdder vacant; // number of vacant spots
+    private Clock clock; // source of parking times
+
+    /**
+    Constructor that initializes an empty concurrent car park.
+    **/
+    public ConcurrentCarPark()
+    {
+        this.spots = new ConcurrentHashMap<String, ParkingSpot>();
+        this.cars = new ConcurrentHashMap<String, ParkingSpot>();
+        this.makeIndex = new ConcurrentHashMap<String, Set<ParkingSpot>>();
+        this.modelIndex = new ConcurrentHashMap<String, Set<ParkingSpot>>();
+        this.reservations = new ConcurrentHashMap<String, ReservationBook>();
+        this.vacant = new LongAdder();
+        this.clock = Clock.systemUTC();
+    }
+
+    /**
+    Sets the clock parking times are read from. Set it before any gate starts parking cars.
+    @param clock the clock to use; the system clock is used by default
+    **/
+    public void setClock(Clock clock){
+        this.clock = clock;
+    }
+
+    /**
+    Adds a new parking spot to the car park with the given identifier.
+    @param identifier a unique identifier for the parking spot.
+    @return false if a parking spot with the same identifier already exists, true otherwise.
+    **/
+    public boolean addSpot(String identifier){
+        if(spots.putIfAbsent(identifier, new ParkingSpot(identifier)) != null){
+            return false;
+        }
+        vacant.increment();
+        return true;
+    }
+
+    /**
+    Deletes a parking spot from the car park.
+    @param spotIdentifier the identifier of the parking spot to be deleted.
+    @return 0 if slot doesn't exist, 1 if slot is not vacant, 2 othewise.
+    **/
+    public int deleteSpot(String spotIdentifier){
+        ParkingSpot parkingSpot = spots.get(spotIdentifier);
+        if(parkingSpot == null) return 0; // slot doesn't exist
+        synchronized(parkingSpot){
+            if(spots.get(spotIdentifier) != parkingSpot){
+                return 0; // deleted by another gate meanwhile
+            }else if(!parkingSpot.getStatus()){
+                return 1; // slot is not empty
+            }else{
+                spots.remove(spotIdentifier, parkingSpot);
+                reservations.remove(spotIdentifier);
+                vacant.decrement();
+                return 2; // success
+            }
+        }
+    }
+
+    /**
+    Gets a snapshot of all parking spots, in no particular order.
+    Spots may change while the snapshot is read; lock a spot to read its car consistently.
+    @return ArrayList of ParkingSpot objects
+    **/
+    public ArrayList<ParkingSpot> viewAllSpots(){
+        return new ArrayList<ParkingSpot>(spots.values());
+    }
+
+    /**
+    Parks a car in a specified parking spot.
+    @param identifier the identifier of the parking spot
+    @param registration the registration number of the car
+    @param make the make of the car
+    @param model the model of the car
+    @param year the year of the car
+    @return 0 if slot doesn't exist, 1 if slot not vacant or reserved for another car now, 2 if car found in another slot, 3 otherwise.
+    **/
+    public int parkCar(String identifier, String registration, String make, String model, int year){
+        ParkingSpot parkingSpot = spots.get(identifier);
+        if(parkingSpot == null) return 0; // slot doesn't exist
+        synchronized(parkingSpot){
+            if(spots.get(identifier) != parkingSpot){
+                return 0; // deleted by another gate meanwhile
+            }else if(!parkingSpot.getStatus()){
+                return 1; // slot occupied already
+            }else if(isReservedForOther(identifier, registration, clock.millis())){
+                return 1; // slot held for another car
+            }else if(cars.putIfAbsent(registration, parkingSpot) != null){
+                return 2; // car in another slot
+            }else{
+                parkingSpot.addCar(new Car(registration, make, model, year), clock.millis());
+                index(makeIndex, make, parkingSpot);
+                index(modelIndex, model, parkingSpot);
+                vacant.decrement();
+                return 3; // success
+            }
+        }
+    }
+
+    /**
+    Books a parking spot for a car over a time window. While the booking is active, parkCar keeps the spot for that car.
+    @param identifier the identifier of the parking spot
+    @param registration the registration of the car to hold the spot for
+    @param start the start of the window in epoch milliseconds
+    @param end the end of the window in epoch milliseconds, exclusive
+    @return 0 if slot doesn't exist, 1 if slot already booked in the window (or taken by another car for a window starting now), 2 otherwise.
+    @throws IllegalArgumentException if the window does not end after it starts
+    **/
+    public int reserve(String identifier, String registration, long start, long end){
+        if(end <= start) throw new IllegalArgumentException("Reservation must end after it starts: " + start + " to " + end);
+        ParkingSpot parkingSpot = spots.get(identifier);
+        if(parkingSpot == null) return 0; // slot doesn't exist
+        synchronized(parkingSpot){
+            if(spots.get(identifier) != parkingSpot){
+                return 0; // deleted by another gate meanwhile
+            }else if(start <= clock.millis() && !parkingSpot.getStatus() && !parkingSpot.getCar().getRegistration().equals(registration)){
+                return 1; // another car is in the slot already
+            }else if(reservations.computeIfAbsent(identifier, (k) -> new ReservationBook()).reserve(identifier, registration, start, end) == null){
+                return 1; // slot booked in the window
+            }else{
+                return 2; // success
+            }
+        }
+    }
+
+    /**
+    Cancels the booking of a spot that starts at a given time.
+    @param identifier the identifier of the parking spot
+    @param start the start of the booking's window in epoch milliseconds
+    @return false if there is no such booking, true otherwise.
+    **/
+    public boolean cancelReservation(String identifier, long start){
+        ParkingSpot parkingSpot = spots.get(identifier);
+        if(parkingSpot == null) return false; // slot doesn't exist
+        synchronized(parkingSpot){
+            ReservationBook bookings = reservations.get(identifier);
+            if(spots.get(identifier) != parkingSpot || bookings == null || bookings.cancel(identifier, start) == null){
+                return false; // no such booking
+            }
+            if(bookings.isEmpty()) reservations.remove(identifier);
+            return true;
+        }
+    }
+
+    /**
+    Finds the parking spot with the given identifier.
+    @param identifier the identifier of the parking spot
+    @return the parking spot, or null if not found
+    **/
+    public ParkingSpot findSpot(String identifier){
+        return spots.get(identifier);
+    }
+
+    /**
+    Finds the parking spot holding the car with the given registration.
+    @param registration of the car
+    @return the parking spot, or null if not found
+    **/
+    public ParkingSpot findCar(String registration){
+        return cars.get(registration);
+    }
+
+    /**
+    Removes the car with the given registration from its parking spot.
+    @param registration of the car
+    @return false if car doesnt't exist, true othewise.
+    **/
+    public boolean removeCarByRegistration(String registration){
+        ParkingSpot parkingSpot = cars.get(registration);
+        if(parkingSpot == null) return false; // car doesnt exist
+        synchronized(parkingSpot){
+            if(cars.get(registration) != parkingSpot){
+                return false; // removed by another gate meanwhile
+            }
+            vacate(parkingSpot);
+            return true; // success
+        }
+    }
+
+    /**
+    Searches for cars by make, ignoring case.
+    @param make the make of the car to search for (e.g., Toyota, Honda)
+    @return the spots holding a car of that make, empty if none
+    **/
+    public ArrayList<ParkingSpot> findCarByMake(String make){
+        return matches(makeIndex, make);
+    }
+
+    /**
+    Searches for cars by model, ignoring case.
+    @param model the model of the car to search for (e.g., Corolla)
+    @return the spots holding a car of that model, empty if none
+    **/
+    public ArrayList<ParkingSpot> findCarByModel(String model){
+        return matches(modelIndex, model);
+    }
+
+    /**
+    Gets the number of vacant parking spots.
+    The count is exact once concurrent gate operations have finished.
+    @return the vacant spot count
+    **/
+    public int getVacantCount(){
+        return vacant.intValue();
+    }
+
+    /**
+    Removes all the cars from all parking spots, one spot lock at a time.
+    Gates may keep parking while this runs; cars parked behind it stay parked.
+    **/
+    public void reset(){
+        for(ParkingSpot parkingSpot : spots.values()){
+            synchronized(parkingSpot){
+                if(!parkingSpot.getStatus()) vacate(parkingSpot);
+            }
+        }
+    }
+
+    /**
+    Checks if a spot is booked right now for a car other than the given one. Caller must hold the spot's lock.
+    **/
+    private boolean isReservedForOther(String identifier, String registration, long now){
+        ReservationBook bookings = reservations.get(identifier);
+        if(bookings == null) return false;
+        Reservation reservation = bookings.getActive(identifier, now);
+        return reservation != null && !reservation.getRegistration().equals(registration);
+    }
+
+    /**
+    Removes the car from a spot and releases its registration. Caller must hold the spot's lock.
+    **/
+    private void vacate(ParkingSpot parkingSpot){
+        Car car = parkingSpot.getCar();
+        unindex(makeIndex, car.getMake(), parkingSpot);
+        unindex(modelIndex, car.getModel(), parkingSpot);
+        parkingSpot.removeCar();
+        cars.remove(car.getRegistration(), parkingSpot);
+        vacant.increment();
+    }
+
+    /**
+    Adds a spot to one entry of an inverted index.
+    **/
+    private static void index(ConcurrentHashMap<String, Set<ParkingSpot>> index, String key, ParkingSpot parkingSpot){
+        index.compute(key.toLowerCase(Locale.ROOT), (k, spots) -> {
+            if(spots == null) spots = ConcurrentHashMap.newKeySet();
+            spots.add(parkingSpot);
+            return spots;
+        });
+    }
+
+    /**
+    Removes a spot from one entry of an inverted index, dropping the entry once it is empty.
+    The add and the removal both run inside the map's per-key compute, so a gate adding to an entry
+    never adds to one that is being dropped.
+    **/
+    private static void unindex(ConcurrentHashMap<String, Set<ParkingSpot>> index, String key, ParkingSpot parkingSpot){
+        index.computeIfPresent(key.toLowerCase(Locale.ROOT), (k, spots) -> {
+            spots.remove(parkingSpot);
+            return spots.isEmpty() ? null : spots;
+        });
+    }
+
+    /**
+    Copies one entry of an inverted index into a list.
+    **/
+    private static ArrayList<ParkingSpot> matches(ConcurrentHashMap<String, Set<ParkingSpot>> index, String key){
+        Set<ParkingSpot> spots = index.get(key.toLowerCase(Locale.ROOT));
+        return spots == null ? new ArrayList<ParkingSpot>() : new ArrayList<ParkingSpot>(spots);
+    }
+}
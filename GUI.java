@@ -10,7 +10,20 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.management.JMException;
 
 public class GUI
 {
@@ -25,8 +38,29 @@ public class GUI
     exit, 
     resetSearch, 
     findIdentifier, 
-    findCar; // button instances used in this application
-    private CarPark cp = new CarPark(); // CarPark instance
+    findCar,
+    stats,
+    importCsv,
+    exportCsv; // button instances used in this application
+    private CarPark cp = new CarPark(); // CarPark instance, only used on carParkWorker (the stateless validate methods and the thread-safe metrics excepted)
+    private ExecutorService carParkWorker; // single background thread that runs every CarPark operation
+    private AtomicBoolean refreshPending = new AtomicBoolean(); // a spot panel refresh is scheduled
+    private Timer refreshTimer; // fires one refresh per frame for any number of requests
+    final private ParkingEvents events = new ParkingEvents(4096); // changes published by cp
+    private ParkingEvents.Consumer spotEvents; // the spot panel's reader of events, polled on the event dispatch thread
+    private long spotEventsLost; // events spotEvents had missed at its last poll
+    final private int frameMillis = 16; // minimum time between spot panel refreshes
+    private ParkingLog log; // write-ahead log behind cp, null if saved state could not be opened
+    final private Path snapshotFile = Paths.get("carpark.snapshot"); // periodic snapshot of cp
+    final private Path logFile = Paths.get("carpark.log"); // mutations since the last snapshot
+    final private Tariff tariff = new Tariff(300, 2000, 500, 2, ZoneId.systemDefault()); // $3 an hour, at most $20 a day, $5 a night past 2 AM
+    final private SessionLedger sessions = new SessionLedger(); // sessions that ended today, for the revenue figure
+    private LocalDate sessionDay = LocalDate.now(); // day the sessions in the ledger ended on, only used on carParkWorker
+    final private int rolloverMillis = 60 * 1000; // how often the session ledger is checked for a new day
+    final private String autoAssign = "Assign Automatically"; // park dialog choice that lets cp pick the spot
+    final private int checkpointMillis = 5 * 60 * 1000; // how often a snapshot is written
+    private SpotGrid spotGrid; // custom-painted grid of parking spots inside spotPanel
+    final private Font spotFont = new Font("Courier", Font.PLAIN, 15); // font used for spot text
     
     // colors used in the Application
     final private Color buttonPanelColor = new Color(47,79,79);
@@ -42,12 +76,31 @@ public class GUI
     Sets frame defaults.
     */
     public GUI(){
+        carParkWorker = Executors.newSingleThreadExecutor((r) -> {
+            Thread t = new Thread(r, "carpark-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        refreshTimer = new Timer(frameMillis, (e) -> {
+            refreshPending.set(false);
+            refreshSpotPanel();
+        });
+        refreshTimer.setRepeats(false);
+        spotEvents = events.subscribe(); // before cp publishes anything
+        new Timer(frameMillis, (e) -> pollSpotEvents()).start();
+        try{
+            cp.getMetrics().register("GUI"); // operation stats for JConsole and other JMX clients
+        }catch(JMException e){
+            // the stats button still shows them
+        }
+        
         frame = new JFrame(); // initializing new Frame
         frame.setLayout(new BorderLayout()); // setting frame layout
         
         addPanels(); // add all panels to the frame
         addButtons(); // add all buttons to buttonPanel
         addButtonActionListeners(); // add action listeners to the buttons
+        runOnCarPark(this::restoreCarPark); // load saved parking spots and cars
         
         // Show the Frame
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // frame default close operation
@@ -58,64 +111,198 @@ public class GUI
     }
     
     /**
-    Removes everything from the spot panel.
-    Adds JButton instances utilizing information fromrefreshed ArrayList for CarPark instance.
-    Sets JButton UI Configuration and Label.
-    Sets JButton action listener.
-    Revalidates and repaints spot panel.
+    Runs a CarPark operation on carParkWorker, then hands its result to a callback on the event dispatch thread.
+    Changes to spots and cars reach the spot panel through cp's events (see pollSpotEvents); an operation that
+    changes the search highlights asks for a refresh itself. If the operation throws, an error is shown instead.
+    @param operation the work to do with cp
+    @param then what to do with the result on the event dispatch thread, e.g. show a message
     **/
-    private void refreshSpotPanel(){
-        spotPanel.removeAll(); // removes all components from the panel
-        ArrayList<ParkingSpot> parkingSpots = cp.viewAllSpots(); // parking spots arraylist
-        parkingSpots.forEach((parkingSpot) -> {
-            JButton jb = new JButton(parkingSpot.getIdentifier()); // creates a new JButton instance
-            jb.setFocusPainted(false); // sets not to focus on the JButton texts
-            jb.setFont(new Font("Courier", Font.PLAIN, 15)); // font configuration for the JButton
-            if(parkingSpot.getStatus()){ // spot empty
-                jb.setBackground(parkingSpot.getHighlightSpot() ? this.highlightedSpotColor : this.availableSpotColor); // sets JButton Background Color
-                jb.setText( // sets JButton Text
-                    "<html><center><b>"
-                    +"Spot ID:</b> "+parkingSpot.getIdentifier()+" (Vacant)<br>"
-                    +"</center></html>"
-                );
-                jb.addActionListener(new ActionListener(){ // sets JButton Action Listener
-                    public void actionPerformed(ActionEvent e){
-                        JOptionPane.showMessageDialog(frame,
-                        "Parking spot: " + parkingSpot.getIdentifier() + " is vacant at the moment!",
-                        "Car Details",
-                        JOptionPane.INFORMATION_MESSAGE);
-                    }
-                });
-            }else{ // spot occupied
-                jb.setBackground(parkingSpot.getHighlightSpot() ? this.highlightedSpotColor : this.occupiedSpotColor); // sets JButton Background Color
-                jb.setText( // sets JButton Text
-                    "<html><center><b>"
-                    +"Spot ID:</b> "+parkingSpot.getIdentifier()+" (Occupied)<br>"
-                    +"<b><i>Car Registration:</b></i> "+parkingSpot.getCar().getRegistration()+"<br>"
-                    +"<small>See Details</small>"
-                    +"</center></html>"
-                );
-                jb.addActionListener(new ActionListener(){ // sets JButton Action Listener
-                    public void actionPerformed(ActionEvent e){
-                        JOptionPane.showMessageDialog(frame,
-                        "<html><center><b><i>Car Registration:</b></i> "+parkingSpot.getCar().getRegistration()+"<br>"
-                        +"<b><i>Make:</b></i> "+ parkingSpot.getCar().getMake() +"<br>"
-                        +"<b><i>Model:</b></i> "+ parkingSpot.getCar().getModel() +"<br>"
-                        +"<b><i>Year:</b></i> "+ parkingSpot.getCar().getYear() +"<br>"
-                        +"<b><i>Parked at:</b></i> "+parkingSpot.getDateTime()
-                        +"</html></center>",
-                        "Car Details",
-                        JOptionPane.INFORMATION_MESSAGE);
-                    }
-                });
+    private <T> void runOnCarPark(Callable<T> operation, Consumer<T> then){
+        carParkWorker.execute(() -> {
+            SearchResult highlights = cp.getSearchResult();
+            int highlighted = highlights.size();
+            try{
+                T result = operation.call();
+                SwingUtilities.invokeLater(() -> then.accept(result));
+            }catch(Exception e){
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,"Operation failed: "+ e.getMessage(),"Error",JOptionPane.ERROR_MESSAGE));
+            }finally{
+                if(cp.getSearchResult() != highlights || highlights.size() != highlighted) requestRefresh(); // searches publish no events
             }
-            spotPanel.add(jb); // adds the button to spot panel
         });
-        // revalidate and repaint spotPanel
-        spotPanel.revalidate(); 
-        spotPanel.repaint();
     }
-
+    
+    /**
+    Runs a CarPark operation that has no result on carParkWorker.
+    @param operation the work to do with cp
+    **/
+    private void runOnCarPark(Runnable operation){
+        runOnCarPark(() -> { operation.run(); return null; }, (result) -> {});
+    }
+    
+    /**
+    Asks for the spot panel to be refreshed. Safe to call from any thread.
+    Requests made before the pending refresh runs are merged into it, so a burst of
+    changes repaints the spot panel at most once per frame.
+    **/
+    private void requestRefresh(){
+        if(refreshPending.compareAndSet(false, true)){
+            SwingUtilities.invokeLater(() -> refreshTimer.restart());
+        }
+    }
+    
+    /**
+    Reads the changes cp published since the last poll, and asks for a spot panel refresh if there were any
+    or if some were overwritten before they could be read. Runs on the event dispatch thread once per frame.
+    **/
+    private void pollSpotEvents(){
+        int read = spotEvents.poll((type, identifier, registration, time, parkedAt) -> {}, events.getCapacity()); // only whether something changed matters
+        if(read > 0 || spotEvents.getLost() != spotEventsLost){
+            spotEventsLost = spotEvents.getLost();
+            requestRefresh();
+        }
+    }
+    
+    /**
+    Attaches the event stream to cp, loads the last snapshot and replays the log written after it into cp, then attaches the log
+    and starts a timer that writes a new snapshot every checkpointMillis.
+    If the saved state cannot be read the application keeps running without saving.
+    Runs on carParkWorker.
+    **/
+    private void restoreCarPark(){
+        cp.setEvents(events); // first, so the replayed changes reach the spot panel
+        try{
+            long sequence = ParkingSnapshot.load(snapshotFile, cp);
+            requestRefresh(); // the snapshot is loaded in bulk and publishes no events
+            sequence = ParkingLog.replay(logFile, cp, sequence);
+            log = new ParkingLog(logFile, sequence, 64, 200); // sync every 64 records or 200ms
+            cp.setLog(log);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> { // flushes records still waiting for a group commit
+                try{
+                    log.close();
+                }catch(IOException e){
+                    // nothing left to report to at shutdown
+                }
+            }));
+            SwingUtilities.invokeLater(() -> new Timer(checkpointMillis, (e) -> carParkWorker.execute(this::checkpoint)).start());
+        }catch(IOException e){
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,"Saved parking spots could not be loaded: "+ e.getMessage() +"\nChanges will not be saved.","Load Failed",JOptionPane.ERROR_MESSAGE));
+        }
+        cp.getMetrics().reset(); // the stats should count gate operations, not the restore
+        cp.setTariff(tariff); // set after the replay so restored removals are not charged again
+        cp.setSessionLedger(sessions);
+        SwingUtilities.invokeLater(() -> new Timer(rolloverMillis, (e) -> carParkWorker.execute(this::rollOverSessions)).start());
+        cp.setAllocationStrategy(new NearestEntranceStrategy()); // for the park dialog's automatic choice
+    }
+    
+    /**
+    Empties the session ledger once the day has changed, so it only ever holds the sessions of the day being reported.
+    Runs on carParkWorker.
+    **/
+    private void rollOverSessions(){
+        LocalDate today = LocalDate.now();
+        if(!today.equals(sessionDay)){
+            sessions.clear();
+            sessionDay = today;
+        }
+    }
+    
+    /**
+    Writes a snapshot of cp and empties the log it covers. Runs on carParkWorker.
+    **/
+    private void checkpoint(){
+        try{
+            cp.checkpoint(snapshotFile);
+        }catch(IOException e){
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,"Parking spots could not be saved: "+ e.getMessage(),"Save Failed",JOptionPane.ERROR_MESSAGE));
+        }
+    }
+    
+    /**
+    Repaints the visible part of the spot grid from the CarPark instance.
+    Only cells inside the window are copied and drawn, so this costs the same for any number of spots.
+    Call requestRefresh() instead of this to have refreshes merged.
+    **/
+    private void refreshSpotPanel(){
+        spotGrid.refresh();
+    }
+    
+    /**
+    Shows the details of a clicked spot in the spot grid, as copied at the last refresh.
+    **/
+    private void showSpotDetails(SpotGrid.Cell cell){
+        if(cell.car == null){ // spot empty
+            JOptionPane.showMessageDialog(frame,
+            "Parking spot: " + cell.identifier + " is vacant at the moment!",
+            "Car Details",
+            JOptionPane.INFORMATION_MESSAGE);
+        }else{ // spot occupied
+            JOptionPane.showMessageDialog(frame,
+            "<html><center><b><i>Car Registration:</b></i> "+cell.car.getRegistration()+"<br>"
+            +"<b><i>Make:</b></i> "+ cell.car.getMake() +"<br>"
+            +"<b><i>Model:</b></i> "+ cell.car.getModel() +"<br>"
+            +"<b><i>Year:</b></i> "+ cell.car.getYear() +"<br>"
+            +"<b><i>Parked at:</b></i> "+ParkingSpot.formatTime(cell.parkedAt)
+            +"</html></center>",
+            "Car Details",
+            JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+    
+    /**
+    Builds an HTML table of the occupancy, turnover and dwell-time figures of the car park and each zone,
+    followed by today's revenue. Runs on carParkWorker, which owns the figures and the session ledger.
+    **/
+    private String occupancyReport(){
+        long now = System.currentTimeMillis();
+        StringBuilder table = new StringBuilder("<table cellpadding='3'>"
+            +"<tr><th>Zone</th><th>Spots</th><th>Occupied</th><th>Departures 1h</th><th>Departures 24h</th>"
+            +"<th>Turnover 24h</th><th>Dwell p50 24h</th><th>Dwell p95 24h</th></tr>");
+        ParkingAnalytics analytics = cp.getAnalytics();
+        appendOccupancyRow(table, "All", analytics.getLot(), now);
+        analytics.getZones().forEach((letter, zone) -> appendOccupancyRow(table, letter.toString(), zone, now));
+        rollOverSessions();
+        LocalDate day = sessionDay;
+        long dayStart = day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long dayEnd = day.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Settlement today = Settlement.settle(sessions, tariff, dayStart, dayEnd);
+        return table.append("</table>Revenue today: ").append(Tariff.format(today.getRevenue()))
+            .append(" from ").append(today.getSessions()).append(" cars").toString();
+    }
+    
+    /**
+    Appends one zone's figures to the occupancy table.
+    **/
+    private void appendOccupancyRow(StringBuilder table, String name, OccupancyStats zone, long now){
+        table.append(String.format("<tr><td>%s</td><td align='right'>%d</td><td align='right'>%.1f%%</td><td align='right'>%d</td><td align='right'>%d</td>"
+            +"<td align='right'>%.2f</td><td align='right'>%d min</td><td align='right'>%d min</td></tr>",
+            name, zone.getSpots(), zone.getOccupancy(), zone.getDepartures(OccupancyStats.HOUR, now), zone.getDepartures(OccupancyStats.DAY, now),
+            zone.getTurnover(OccupancyStats.DAY, now), zone.getDwellPercentile(50, OccupancyStats.DAY, now) / OccupancyStats.MINUTE,
+            zone.getDwellPercentile(95, OccupancyStats.DAY, now) / OccupancyStats.MINUTE));
+    }
+    
+    /**
+    Shows the occupancy figures, then the call counts by result code and the call times of every CarPark operation.
+    The operation figures are the same counters the CarPark MBeans publish over JMX.
+    @param occupancy the table built by occupancyReport()
+    **/
+    private void showStats(String occupancy){
+        StringBuilder table = new StringBuilder("<html><b>Occupancy</b>" + occupancy + "<br><b>Operations</b><table cellpadding='3'>"
+            +"<tr><th>Operation</th><th>Calls</th><th>0</th><th>1</th><th>2</th><th>3</th>"
+            +"<th>p50 &micro;s</th><th>p99 &micro;s</th><th>p99.9 &micro;s</th><th>max &micro;s</th></tr>");
+        for(OperationStats operation : cp.getMetrics().getOperations()){
+            table.append("<tr><td>").append(operation.getName()).append("</td>")
+                .append("<td align='right'>").append(operation.getCalls()).append("</td>");
+            for(int result = 0; result < 4; result++){
+                table.append("<td align='right'>").append(operation.getResultCount(result)).append("</td>");
+            }
+            table.append(String.format("<td align='right'>%.1f</td><td align='right'>%.1f</td><td align='right'>%.1f</td><td align='right'>%.1f</td></tr>",
+                operation.getP50Micros(), operation.getP99Micros(), operation.getP999Micros(), operation.getMaxMicros()));
+        }
+        table.append("</table><br>Result codes are those returned by each operation; for true/false results, 0 is false and 1 is true.</html>");
+        JOptionPane.showMessageDialog(frame, table.toString(), "Operation Stats", JOptionPane.INFORMATION_MESSAGE);
+    }
+    
     /**
     Initializes and adds headerPanel, buttonPanel & spotPanel to the frame.
     Sets all the necessary UI configuration to the panels.
@@ -139,15 +326,21 @@ public class GUI
         buttonPanel = new JPanel();
         buttonPanel.setPreferredSize(new Dimension(400, 600));
         buttonPanel.setBackground(buttonPanelColor);
-        buttonPanel.setLayout(new GridLayout(5,2,10,10));
+        buttonPanel.setLayout(new GridLayout(6,2,10,10));
         frame.add(buttonPanel, BorderLayout.LINE_START);
                
         // spot panel
         spotPanel = new JPanel(new BorderLayout());
         spotPanel.setPreferredSize(new Dimension(500, 100));
         spotPanel.setBackground(Color.white);
-        spotPanel.setLayout(new GridLayout(5,5,10,10));
         frame.add(spotPanel, BorderLayout.CENTER);
+        
+        // spot grid in spot panel, scrolls vertically
+        spotGrid = new SpotGrid(cp, carParkWorker, spotFont, availableSpotColor, occupiedSpotColor, highlightedSpotColor, this::showSpotDetails);
+        JScrollPane spotScroll = new JScrollPane(spotGrid, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        spotScroll.setBorder(BorderFactory.createEmptyBorder());
+        spotScroll.getViewport().setBackground(Color.white);
+        spotPanel.add(spotScroll, BorderLayout.CENTER);
     }
     
     /**
@@ -226,6 +419,33 @@ public class GUI
         reset.setFocusPainted(false);
         buttonPanel.add(reset);
         
+        // stats button
+        stats = new JButton();
+        stats.setText("<html><center>"+"Operation<br>Stats"+"</center></html>");
+        stats.setBackground(buttonColor);
+        stats.setForeground(Color.white);
+        stats.setFont(new Font("Monospaced", Font.BOLD, 20));
+        stats.setFocusPainted(false);
+        buttonPanel.add(stats);
+        
+        // import button
+        importCsv = new JButton();
+        importCsv.setText("<html><center>"+"Import<br>CSV"+"</center></html>");
+        importCsv.setBackground(buttonColor);
+        importCsv.setForeground(Color.white);
+        importCsv.setFont(new Font("Monospaced", Font.BOLD, 20));
+        importCsv.setFocusPainted(false);
+        buttonPanel.add(importCsv);
+        
+        // export button
+        exportCsv = new JButton();
+        exportCsv.setText("<html><center>"+"Export<br>CSV"+"</center></html>");
+        exportCsv.setBackground(buttonColor);
+        exportCsv.setForeground(Color.white);
+        exportCsv.setFont(new Font("Monospaced", Font.BOLD, 20));
+        exportCsv.setFocusPainted(false);
+        buttonPanel.add(exportCsv);
+        
         // exit button
         exit = new JButton("Exit");
         exit.setBackground(buttonColor);
@@ -235,28 +455,117 @@ public class GUI
         buttonPanel.add(exit);
     }
     
+    /**
+    Shows the park car dialog for the given vacant spots and parks the car entered.
+    @param choices string array for choices in identifiers, vacant spots only
+    **/
+    private void showParkCarDialog(String[] choices){
+        if(choices.length == 0){ // nowhere to park
+            JOptionPane.showMessageDialog(frame,"There are no vacant parking spots!","No Vacant Spot",JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Arrays.sort(choices); // the tracker keeps no order, so sort for the drop-down
+                 
+        // input fields
+        JComboBox<String> identifier = new JComboBox<String>(choices);
+        identifier.insertItemAt(autoAssign, 0); // lets cp pick the spot nearest the entrance
+        identifier.setSelectedIndex(0);
+        JTextField registration = new JTextField();
+        JTextField make = new JTextField();
+        JTextField model = new JTextField();
+        JTextField year = new JTextField();
+        
+        Object[] message = {
+            "Spot ID:", identifier,
+            "Registration:", registration, 
+            "Make:", make,
+            "Model:", model,
+            "Year:", year
+        };
+        int option = JOptionPane.showConfirmDialog(null, message, "Car Details", JOptionPane.OK_CANCEL_OPTION); // input dialog
+        
+        if (option == JOptionPane.OK_OPTION) {
+            String identifierText = (String)identifier.getSelectedItem();
+            String registrationText = registration.getText();
+            String makeText = make.getText();
+            String modelText = model.getText();
+            String yearText = year.getText();
+            
+            if(identifierText != ""){ // null check for identifier
+                if(cp.validateRegistration(registrationText)){ // validating registration input
+                    if(cp.validateYear(yearText)){ // validating year input
+                        if(!make.getText().isEmpty()){ // null check for make input
+                            if(model.getText().isEmpty()){ // null check for model input
+                                JOptionPane.showMessageDialog(frame,"You must enter car model!","Invalid Car Model",JOptionPane.ERROR_MESSAGE);
+                            }else if(identifierText.equals(autoAssign)){ // success, spot picked by cp
+                                AtomicReference<String> picked = new AtomicReference<String>(); // spot cp chose, read in the same task as the parking
+                                runOnCarPark(() -> {
+                                    int result = cp.parkAnywhere(new Car(registrationText, makeText, modelText, Integer.parseInt(yearText)));
+                                    if(result == 3) picked.set(cp.viewAllSpots().get(cp.findCar(registrationText)).getIdentifier());
+                                    return result;
+                                }, (result) -> {
+                                    if(result == 0){ // every slot taken since the dialog opened
+                                        JOptionPane.showMessageDialog(frame,"There are no vacant parking spots!","No Vacant Spot",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                    else if(result == 2){ // car in another slot
+                                        JOptionPane.showMessageDialog(frame,"The car registration: "+ registrationText +" is already in another spot!","Duplicate Car",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                    else{ // success
+                                        JOptionPane.showMessageDialog(frame,"Successfully parked car registration "+ registrationText +" at: "+ picked.get(),"Success", JOptionPane.INFORMATION_MESSAGE);
+                                    }
+                                });
+                            }else{ // success
+                                runOnCarPark(() -> cp.parkCar(identifierText, registrationText, makeText, modelText, Integer.parseInt(yearText)), (result) -> {
+                                    if(result == 0){ // slot removed since the dialog opened
+                                        JOptionPane.showMessageDialog(frame,"Parking Spot "+identifierText+" does not exist!","No Parking Spot",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                    else if(result == 1){ // slot already occupied or reserved
+                                        JOptionPane.showMessageDialog(frame,"Spot is not vacant or is reserved for another car!","Occupied Spot",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                    else if(result == 2){ // car in another slot
+                                        JOptionPane.showMessageDialog(frame,"The car registration: "+ registrationText +" is already in another spot!","Duplicate Car",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                    else{ // success
+                                        JOptionPane.showMessageDialog(frame,"Successfully parked car registration "+ registrationText +" at: "+ identifierText,"Success", JOptionPane.INFORMATION_MESSAGE);
+                                    }
+                                });
+                            }
+                        }else{ // invalid make input
+                            JOptionPane.showMessageDialog(frame,"You must enter car make!","Invalid Car Make",JOptionPane.ERROR_MESSAGE);
+                        }
+                    }else{ // invalid year input
+                        JOptionPane.showMessageDialog(frame,"Year "+ yearText +" is not between 2004 and 2024!","Invalid Year",JOptionPane.ERROR_MESSAGE);
+                    }
+                }else{ // invalid registration format
+                    JOptionPane.showMessageDialog(frame,"Registration "+ registrationText +" is in invalid format! Correct format example: T1234","Invalid Registration",JOptionPane.ERROR_MESSAGE);
+                }
+            }else{ // null identifier - nothing selected
+                JOptionPane.showMessageDialog(frame,"You must select an identifier to park a car!","Invalid Identifier",JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
     /**
     Adds all the action listeners to all the buttons in buttonsPanel.
     **/
     private void addButtonActionListeners(){
         addButton.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                cp.resetSearch(); // resets search highlights in the spotPanel
+                runOnCarPark(cp::resetSearch); // resets search highlights in the spotPanel
                 String identifier = JOptionPane.showInputDialog("Enter Spot Identifier: "); // input dialog
                 if(identifier != null){ // null check for the input
                     if(!cp.validateIdentifier(identifier)){ // invalid identifier format
                         JOptionPane.showMessageDialog(frame,"Identifier "+ identifier +" is in invalid format! Correct format example: P123","Invalid Identifier",JOptionPane.ERROR_MESSAGE);
                     }
                     else{ // valid identifier format
-                        boolean result = cp.addSpot(identifier);
-                    
-                        if(result){ // successful
-                            refreshSpotPanel();
-                            JOptionPane.showMessageDialog(frame,"Successfully added parking spot: "+identifier,"Success", JOptionPane.INFORMATION_MESSAGE);
-                        }
-                        else{ // failed
-                            JOptionPane.showMessageDialog(frame,"Parking Spot "+identifier+" already exists!","Duplicate Parking Spot",JOptionPane.ERROR_MESSAGE);
-                        }
+                        runOnCarPark(() -> cp.addSpot(identifier), (result) -> {
+                            if(result){ // successful
+                                JOptionPane.showMessageDialog(frame,"Successfully added parking spot: "+identifier,"Success", JOptionPane.INFORMATION_MESSAGE);
+                            }
+                            else{ // failed
+                                JOptionPane.showMessageDialog(frame,"Parking Spot "+identifier+" already exists!","Duplicate Parking Spot",JOptionPane.ERROR_MESSAGE);
+                            }
+                        });
                     }
                 }
             }
@@ -264,23 +573,22 @@ public class GUI
         
         removeButton.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                cp.resetSearch(); // resets search highlights in the spotPanel/
+                runOnCarPark(cp::resetSearch); // resets search highlights in the spotPanel/
                 String identifier = JOptionPane.showInputDialog("Enter Spot Identifier: "); // input dialog
                 if(identifier != null){ // null check for the input
                     if(!cp.validateIdentifier(identifier)){ // invalid identifier format
                         JOptionPane.showMessageDialog(frame,"Identifier "+ identifier +" is in invalid format! Correct format example: P123","Invalid Identifier",JOptionPane.ERROR_MESSAGE);
                     }else{ // valid identifier format
-                        int result = cp.deleteSpot(identifier);
-                    
-                        if(result == 2){ // successful
-                            refreshSpotPanel(); // refreshes spot panel
-                            JOptionPane.showMessageDialog(frame,"Successfully removed parking spot: "+identifier,"Success", JOptionPane.INFORMATION_MESSAGE);
-                        }
-                        else if (result == 1){ // spot isn't vacant
-                            JOptionPane.showMessageDialog(frame,"Parking Spot "+identifier+" is not vacant!","Parking Spot Occupied",JOptionPane.ERROR_MESSAGE);
-                        }else{ // spot doesn't exist
-                            JOptionPane.showMessageDialog(frame,"Parking Spot "+identifier+" does not exist!","No Parking Spot",JOptionPane.ERROR_MESSAGE);
-                        }
+                        runOnCarPark(() -> cp.deleteSpot(identifier), (result) -> {
+                            if(result == 2){ // successful
+                                JOptionPane.showMessageDialog(frame,"Successfully removed parking spot: "+identifier,"Success", JOptionPane.INFORMATION_MESSAGE);
+                            }
+                            else if (result == 1){ // spot isn't vacant
+                                JOptionPane.showMessageDialog(frame,"Parking Spot "+identifier+" is not vacant!","Parking Spot Occupied",JOptionPane.ERROR_MESSAGE);
+                            }else{ // spot doesn't exist
+                                JOptionPane.showMessageDialog(frame,"Parking Spot "+identifier+" does not exist!","No Parking Spot",JOptionPane.ERROR_MESSAGE);
+                            }
+                        });
                     }
                 }
             }
@@ -288,85 +596,28 @@ public class GUI
         
         parkSpot.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                cp.resetSearch(); // resets search highlights in the spotPanel
-                String[] choices = new String[cp.viewAllSpots().size()]; // string array for choices in identifiers
-                for(int i = 0; i < choices.length ; i++){
-                    choices[i] = cp.viewAllSpots().get(i).getIdentifier();
-                }
-                         
-                // input fields
-                JComboBox identifier = new JComboBox(choices);
-                JTextField registration = new JTextField();
-                JTextField make = new JTextField();
-                JTextField model = new JTextField();
-                JTextField year = new JTextField();
-                
-                Object[] message = {
-                    "Spot ID:", identifier,
-                    "Registration:", registration, 
-                    "Make:", make,
-                    "Model:", model,
-                    "Year:", year
-                };
-                int option = JOptionPane.showConfirmDialog(null, message, "Car Details", JOptionPane.OK_CANCEL_OPTION); // input dialog
-                
-                if (option == JOptionPane.OK_OPTION) {
-                    String identifierText = (String)identifier.getSelectedItem();
-                    String registrationText = registration.getText();
-                    String makeText = make.getText();
-                    String modelText = model.getText();
-                    String yearText = year.getText();
-                    
-                    if(identifierText != ""){ // null check for identifier
-                        if(cp.validateRegistration(registrationText)){ // validating registration input
-                            if(cp.validateYear(yearText)){ // validating year input
-                                if(!make.getText().isEmpty()){ // null check for make input
-                                    if(model.getText().isEmpty()){ // null check for model input
-                                        JOptionPane.showMessageDialog(frame,"You must enter car model!","Invalid Car Model",JOptionPane.ERROR_MESSAGE);
-                                    }else{ // success
-                                        int result = cp.parkCar(identifierText, registrationText, makeText, modelText, Integer.parseInt(yearText));
-                                        if(result == 1){ // slot already occupied
-                                            JOptionPane.showMessageDialog(frame,"Spot is not vacant!","Occupied Spot",JOptionPane.ERROR_MESSAGE);
-                                        }
-                                        else if(result == 2){ // car in another slot
-                                            JOptionPane.showMessageDialog(frame,"The car registration: "+ registrationText +" is already in another spot!","Duplicate Car",JOptionPane.ERROR_MESSAGE);
-                                        }
-                                        else{ // success
-                                            refreshSpotPanel();
-                                            JOptionPane.showMessageDialog(frame,"Successfully parked car registration "+ registrationText +" at: "+ identifierText,"Success", JOptionPane.INFORMATION_MESSAGE);
-                                        }
-                                    }
-                                }else{ // invalid make input
-                                    JOptionPane.showMessageDialog(frame,"You must enter car make!","Invalid Car Make",JOptionPane.ERROR_MESSAGE);
-                                }
-                            }else{ // invalid year input
-                                JOptionPane.showMessageDialog(frame,"Year "+ yearText +" is not between 2004 and 2024!","Invalid Year",JOptionPane.ERROR_MESSAGE);
-                            }
-                        }else{ // invalid registration format
-                            JOptionPane.showMessageDialog(frame,"Registration "+ registrationText +" is in invalid format! Correct format example: T1234","Invalid Registration",JOptionPane.ERROR_MESSAGE);
-                        }
-                    }else{ // null identifier - nothing selected
-                        JOptionPane.showMessageDialog(frame,"You must select an identifier to park a car!","Invalid Identifier",JOptionPane.ERROR_MESSAGE);
-                    }
-                }
+                runOnCarPark(() -> { // resets search highlights in the spotPanel and fetches the vacant spots
+                    cp.resetSearch();
+                    return cp.getVacantIdentifiers();
+                }, (choices) -> showParkCarDialog(choices));
             }
         });
         
         removeCarByReg.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                cp.resetSearch(); // resets search highlights in the spotPanel
+                runOnCarPark(cp::resetSearch); // resets search highlights in the spotPanel
                 String registration = JOptionPane.showInputDialog("Enter Car Registration: "); // input dialog
                 if(registration != null){ // null check for the input
                     if(!cp.validateRegistration(registration)){ // validate registration format
                         JOptionPane.showMessageDialog(frame,"Registration "+ registration +" is in invalid format! Correct format example: T1234","Invalid Registration",JOptionPane.ERROR_MESSAGE);
                     }else{ // valid registration
-                        boolean result = cp.removeCarByRegistration(registration);
-                        if(result){ // success
-                            refreshSpotPanel();
-                            JOptionPane.showMessageDialog(frame,"Successfully removed car registration: "+ registration ,"Success", JOptionPane.INFORMATION_MESSAGE);
-                        }else{ // failed
-                            JOptionPane.showMessageDialog(frame,"Car doesn't exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
-                        }
+                        runOnCarPark(() -> cp.checkOut(registration), (charge) -> {
+                            if(charge >= 0){ // success
+                                JOptionPane.showMessageDialog(frame,"Successfully removed car registration: "+ registration +"\nCharge: "+ Tariff.format(charge),"Success", JOptionPane.INFORMATION_MESSAGE);
+                            }else{ // failed
+                                JOptionPane.showMessageDialog(frame,"Car doesn't exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
+                            }
+                        });
                     }
                 }
             }
@@ -374,35 +625,80 @@ public class GUI
         
         reset.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                cp.reset(); // removes car from all parking spot instances
-                cp.resetSearch(); // sets highlight variable to false for all parking spot instances
-                refreshSpotPanel(); // refreshes spot panel
-                JOptionPane.showMessageDialog(frame,"Successfully reset parking spot!","Success", JOptionPane.INFORMATION_MESSAGE);
+                runOnCarPark(() -> {
+                    cp.reset(); // removes car from all parking spot instances
+                    cp.resetSearch(); // clears the search highlights
+                    return null;
+                }, (result) -> JOptionPane.showMessageDialog(frame,"Successfully reset parking spot!","Success", JOptionPane.INFORMATION_MESSAGE));
+            }
+        });
+        
+        importCsv.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                runOnCarPark(cp::resetSearch); // resets search highlights in the spotPanel
+                JFileChooser chooser = new JFileChooser(); // file dialog
+                if(chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION){
+                    Path file = chooser.getSelectedFile().toPath();
+                    runOnCarPark(() -> ParkingCsv.importFrom(file, cp), (report) -> {
+                        String message = "Read "+ report.getRows() +" rows: added "+ report.getSpotsAdded() +" spots and parked "+ report.getCarsParked() +" cars.";
+                        if(report.getRejected() == 0){ // success
+                            JOptionPane.showMessageDialog(frame, message, "Success", JOptionPane.INFORMATION_MESSAGE);
+                        }else{ // some rows skipped
+                            JTextArea errors = new JTextArea(String.join("\n", report.getErrors()), 10, 50);
+                            errors.setEditable(false);
+                            Object[] details = {message, report.getRejected() +" rows were skipped:", new JScrollPane(errors)};
+                            JOptionPane.showMessageDialog(frame, details, "Rows Skipped", JOptionPane.WARNING_MESSAGE);
+                        }
+                    });
+                }
+            }
+        });
+        
+        exportCsv.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                JFileChooser chooser = new JFileChooser(); // file dialog
+                chooser.setSelectedFile(new File("carpark.csv"));
+                if(chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION){
+                    Path file = chooser.getSelectedFile().toPath();
+                    runOnCarPark(() -> ParkingCsv.exportTo(cp, file), (rows) ->
+                        JOptionPane.showMessageDialog(frame,"Exported "+ rows +" spots to "+ file.getFileName(),"Success", JOptionPane.INFORMATION_MESSAGE));
+                }
+            }
+        });
+        
+        stats.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                runOnCarPark(() -> occupancyReport(), (report) -> showStats(report)); // analytics are read on carParkWorker
             }
         });
         
         exit.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                JOptionPane.showMessageDialog(frame,"Thank you for using Parking Spot Manager!","Close Application", JOptionPane.INFORMATION_MESSAGE);
-                System.exit(0); // exits the application
+                runOnCarPark(() -> {
+                    if(log != null) checkpoint(); // saves state so the next start needs no log replay
+                    return null;
+                }, (result) -> {
+                    JOptionPane.showMessageDialog(frame,"Thank you for using Parking Spot Manager!","Close Application", JOptionPane.INFORMATION_MESSAGE);
+                    System.exit(0); // exits the application
+                });
             }
         });
         
         findIdentifier.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                cp.resetSearch(); // resets search highlights in the spotPanel
+                runOnCarPark(cp::resetSearch); // resets search highlights in the spotPanel
                 String identifier = JOptionPane.showInputDialog("Enter Spot Identifier: ");
                 if(identifier != null){
                     if(!cp.validateIdentifier(identifier)){
                         JOptionPane.showMessageDialog(frame,"Registration "+ identifier +" is in invalid format! Correct format example: T1234","Invalid Registration",JOptionPane.ERROR_MESSAGE);
                     }else{
-                        boolean result = cp.findIdentifier(identifier);
-                        if(result){
-                            refreshSpotPanel();
-                            JOptionPane.showMessageDialog(frame,"Found spot : "+ identifier ,"Success", JOptionPane.INFORMATION_MESSAGE);
-                        }else{
-                            JOptionPane.showMessageDialog(frame,"Spot doesn't exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
-                        }
+                        runOnCarPark(() -> cp.findIdentifier(identifier), (result) -> {
+                            if(result){
+                                JOptionPane.showMessageDialog(frame,"Found spot : "+ identifier ,"Success", JOptionPane.INFORMATION_MESSAGE);
+                            }else{
+                                JOptionPane.showMessageDialog(frame,"Spot doesn't exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
+                            }
+                        });
                     }
                 } 
             }
@@ -410,8 +706,8 @@ public class GUI
         
         findCar.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                cp.resetSearch(); // resets search highlights in the spotPanel
-                String choices[] = {"Registration", "Make", "Model"}; // string array of choices for search category
+                runOnCarPark(cp::resetSearch); // resets search highlights in the spotPanel
+                String choices[] = {"Registration", "Registration Prefix", "Registration (1 character off)", "Make", "Model"}; // string array of choices for search category
                  
                 // create checkbox
                 JComboBox searchCategory = new JComboBox(choices);
@@ -427,28 +723,58 @@ public class GUI
                             if(!cp.validateRegistration(registration)){ // validate registraion input
                                 JOptionPane.showMessageDialog(frame,"Registration "+ registration +" is in invalid format! Correct format example: T1234","Invalid Registration",JOptionPane.ERROR_MESSAGE);
                             }else{ // valid registration input
-                                boolean result = cp.findCarByRegistration(registration); // finds car and sets highlight variable to true
-                                if(result){ // success
-                                    refreshSpotPanel();
-                                    JOptionPane.showMessageDialog(frame,"Found car registration: "+ registration ,"Success", JOptionPane.INFORMATION_MESSAGE);
-                                }else{ // failed
-                                    JOptionPane.showMessageDialog(frame,"Car doesn't exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
-                                }
+                                runOnCarPark(() -> cp.findCarByRegistration(registration), (result) -> { // finds car and adds its spot to the search highlights
+                                    if(result){ // success
+                                        JOptionPane.showMessageDialog(frame,"Found car registration: "+ registration ,"Success", JOptionPane.INFORMATION_MESSAGE);
+                                    }else{ // failed
+                                        JOptionPane.showMessageDialog(frame,"Car doesn't exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                });
                             }
                         } 
+                    }else if(((String)searchCategory.getSelectedItem()).equals("Registration Prefix")){ // find cars by the start of the registration
+                        String prefix = JOptionPane.showInputDialog("Enter Start of Car Registration: "); // prefix input dialog
+                        if(prefix != null){ // null check for prefix input
+                            if(prefix.isEmpty()){
+                                JOptionPane.showMessageDialog(frame,"You must enter part of a Car Registration!","Empty Car Registration",JOptionPane.ERROR_MESSAGE);
+                            }else{
+                                runOnCarPark(() -> cp.findCarByRegistrationPrefix(prefix), (result) -> { // finds cars and adds their spots to the search highlights
+                                    if(result){ // success
+                                        JOptionPane.showMessageDialog(frame,"Found car registrations starting with: "+ prefix ,"Success", JOptionPane.INFORMATION_MESSAGE);
+                                    }else{ // failed
+                                        JOptionPane.showMessageDialog(frame,"No car registration starting with "+ prefix +" exists in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                });
+                            }
+                        }
+                    }else if(((String)searchCategory.getSelectedItem()).equals("Registration (1 character off)")){ // find cars by a possibly misread registration
+                        String registration = JOptionPane.showInputDialog("Enter Car Registration as read: "); // registration input dialog
+                        if(registration != null){ // null check for registration input
+                            if(registration.isEmpty()){
+                                JOptionPane.showMessageDialog(frame,"You must enter a Car Registration!","Empty Car Registration",JOptionPane.ERROR_MESSAGE);
+                            }else{
+                                runOnCarPark(() -> cp.findCarByRegistrationFuzzy(registration), (result) -> { // finds cars and adds their spots to the search highlights
+                                    if(result){ // success
+                                        JOptionPane.showMessageDialog(frame,"Found car registrations within one character of: "+ registration ,"Success", JOptionPane.INFORMATION_MESSAGE);
+                                    }else{ // failed
+                                        JOptionPane.showMessageDialog(frame,"No car registration within one character of "+ registration +" exists in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                });
+                            }
+                        }
                     }else if(((String)searchCategory.getSelectedItem()).equals("Make")){ // find car by make
                         String make = JOptionPane.showInputDialog("Enter Car Make: "); // make input dialog
                         if(make != null){ // null check for make input
                             if(make.isEmpty()){
                                 JOptionPane.showMessageDialog(frame,"You must enter a Car Make!","Empty Car Make",JOptionPane.ERROR_MESSAGE);
                             }else{
-                                boolean result = cp.findCarByMake(make); // finds car and sets highlight variable to true
-                                if(result){ // success
-                                    refreshSpotPanel();
-                                    JOptionPane.showMessageDialog(frame,"Found car make: "+ make ,"Success", JOptionPane.INFORMATION_MESSAGE);
-                                }else{ // failed
-                                    JOptionPane.showMessageDialog(frame,"No such car make exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
-                                }
+                                runOnCarPark(() -> cp.findCarByMake(make), (result) -> { // finds car and adds its spot to the search highlights
+                                    if(result){ // success
+                                        JOptionPane.showMessageDialog(frame,"Found car make: "+ make ,"Success", JOptionPane.INFORMATION_MESSAGE);
+                                    }else{ // failed
+                                        JOptionPane.showMessageDialog(frame,"No such car make exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                });
                             }
                         }
                     }else if(((String)searchCategory.getSelectedItem()).equals("Model")){ // find car by model
@@ -457,13 +783,13 @@ public class GUI
                             if(model.isEmpty()){
                                 JOptionPane.showMessageDialog(frame,"You must enter a Car Model!","Empty Car Model",JOptionPane.ERROR_MESSAGE);
                             }else{
-                                boolean result = cp.findCarByModel(model); // finds car and sets highlight variable to true
-                                if(result){ // success
-                                    refreshSpotPanel();
-                                    JOptionPane.showMessageDialog(frame,"Found car model: "+ model ,"Success", JOptionPane.INFORMATION_MESSAGE);
-                                }else{ // failed
-                                    JOptionPane.showMessageDialog(frame,"No such car model exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
-                                }
+                                runOnCarPark(() -> cp.findCarByModel(model), (result) -> { // finds car and adds its spot to the search highlights
+                                    if(result){ // success
+                                        JOptionPane.showMessageDialog(frame,"Found car model: "+ model ,"Success", JOptionPane.INFORMATION_MESSAGE);
+                                    }else{ // failed
+                                        JOptionPane.showMessageDialog(frame,"No such car model exist in Parking Spots!","Car Not Found",JOptionPane.ERROR_MESSAGE);
+                                    }
+                                });
                             }
                         }
                     }
@@ -473,9 +799,8 @@ public class GUI
         
         resetSearch.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                cp.resetSearch(); // resets search highlights in the spotPanel
-                refreshSpotPanel(); // refreshes spot panel
-                JOptionPane.showMessageDialog(frame,"Successfully reset search highlights!","Success", JOptionPane.INFORMATION_MESSAGE);
+                runOnCarPark(() -> { cp.resetSearch(); return null; }, // resets search highlights in the spotPanel
+                    (result) -> JOptionPane.showMessageDialog(frame,"Successfully reset search highlights!","Success", JOptionPane.INFORMATION_MESSAGE));
             }
         });
         
@@ -485,6 +810,6 @@ public class GUI
      * Main Method
      */
     public static void main(String[] args){
-        new GUI(); // makes a new GUI object
+        SwingUtilities.invokeLater(() -> new GUI()); // makes a new GUI object on the event dispatch thread
     }
 }
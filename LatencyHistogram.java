@@ -0,0 +1,126 @@
+/**
+ * This class records how long an operation takes, in log-sized buckets, and reports percentiles.
+ * Each power of two of nanoseconds is split into 8 buckets, so a reported percentile is within 12.5%
+ * of the true value while the whole range from 1ns to about 18 minutes needs only 312 counters.
+ * Recording is a few arithmetic steps and one atomic increment, and is safe from any thread.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram
+{
+    private static final int SUB_BITS = 3; // 2^3 = 8 buckets per power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40; // 2^40 ns is about 18 minutes; longer times share the last buckets
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private AtomicLongArray counts; // number of recorded times in each bucket
+    private LongAdder count; // number of recorded times
+    private LongAdder total; // sum of recorded times, in nanoseconds
+    private AtomicLong max; // longest recorded time, in nanoseconds
+
+    /**
+    Constructor that initializes an empty histogram.
+    **/
+    public LatencyHistogram()
+    {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.total = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+    Records one time.
+    @param nanos the time in nanoseconds; negative times are recorded as 0
+    **/
+    public void record(long nanos){
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(nanos));
+        count.increment();
+        total.add(nanos);
+        if(nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+    Gets a percentile of the recorded times.
+    @param percentile the percentile wanted, from 0 to 100 (e.g. 99.9)
+    @return the upper end of the bucket holding that percentile in nanoseconds, or 0 if nothing was recorded
+    **/
+    public long getPercentile(double percentile){
+        long[] snapshot = new long[BUCKETS];
+        long recorded = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if(recorded == 0) return 0;
+        long rank = Math.max(1, (long)Math.ceil(recorded * percentile / 100)); // the rank-th smallest time
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += snapshot[i];
+            if(seen >= rank) return Math.min(upperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+    Gets the number of recorded times.
+    **/
+    public long getCount(){
+        return count.sum();
+    }
+
+    /**
+    Gets the mean of the recorded times in nanoseconds, 0 if nothing was recorded.
+    **/
+    public double getMean(){
+        long recorded = count.sum();
+        return recorded == 0 ? 0 : (double)total.sum() / recorded;
+    }
+
+    /**
+    Gets the longest recorded time in nanoseconds.
+    **/
+    public long getMax(){
+        return max.get();
+    }
+
+    /**
+    Forgets every recorded time. Times recorded while this runs may be kept or dropped.
+    **/
+    public void reset(){
+        for(int i = 0; i < BUCKETS; i++){
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    /**
+    Gets the bucket a time falls in. Times below 8ns get a bucket each; above that each power of two has 8.
+    **/
+    private static int bucket(long nanos){
+        if(nanos < SUB_COUNT) return (int)nanos;
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+        int sub = (int)(nanos >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        if(exponent == MAX_EXPONENT && nanos >>> MAX_EXPONENT > 1) sub = SUB_COUNT - 1; // beyond the range
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+    Gets the largest time that falls in a bucket.
+    **/
+    private static long upperBound(int bucket){
+        if(bucket < SUB_COUNT) return bucket;
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        int sub = bucket % SUB_COUNT;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((long)(SUB_COUNT + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+}
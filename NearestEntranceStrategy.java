@@ -0,0 +1,64 @@
+/**
+ * This class allocates the vacant spot nearest the entrance, so drivers walk the least.
+ * Vacant spots are kept in a TreeSet ordered by distance, so adding, removing and picking
+ * a spot each take O(log n) time.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+
+public class NearestEntranceStrategy implements AllocationStrategy
+{
+    private TreeSet<ParkingSpot> vacant; // vacant spots, nearest first
+
+    /**
+    Constructor for a car park whose spots are numbered outwards from the entrance in every zone,
+    so the distance of a spot is its number (e.g. 1 for A001, 12 for B012).
+    **/
+    public NearestEntranceStrategy()
+    {
+        this(NearestEntranceStrategy::spotNumber);
+    }
+
+    /**
+    Constructor for any layout.
+    @param distance gives the distance of a spot from the entrance, from its identifier, in any unit
+    **/
+    public NearestEntranceStrategy(ToIntFunction<String> distance)
+    {
+        Comparator<ParkingSpot> nearest = Comparator.comparingInt((spot) -> distance.applyAsInt(spot.getIdentifier()));
+        this.vacant = new TreeSet<ParkingSpot>(nearest.thenComparing(ParkingSpot::getIdentifier)); // ties in identifier order
+    }
+
+    public void spotVacant(ParkingSpot parkingSpot){
+        vacant.add(parkingSpot);
+    }
+
+    public void spotTaken(ParkingSpot parkingSpot){
+        vacant.remove(parkingSpot);
+    }
+
+    public ParkingSpot pick(){
+        return vacant.isEmpty() ? null : vacant.first();
+    }
+
+    public void clear(){
+        vacant.clear();
+    }
+
+    /**
+    Reads the number after the zone letter of an identifier, or the largest int if there is none.
+    **/
+    private static int spotNumber(String identifier){
+        int number = 0;
+        for(int i = 1; i < identifier.length(); i++){
+            char c = identifier.charAt(i);
+            if(c < '0' || c > '9' || number > (Integer.MAX_VALUE - 9) / 10) return Integer.MAX_VALUE;
+            number = number * 10 + (c - '0');
+        }
+        return identifier.length() > 1 ? number : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * This class keeps running occupancy, turnover and dwell-time figures for a group of parking spots,
+ * such as a whole car park or the spots whose identifiers start with one letter.
+ * Every change costs a few array updates, and every query reads a fixed number of time buckets,
+ * so nothing ever scans the spots or reads their formatted parking times.
+ *
+ * Arrivals, departures and dwell times are kept in two rings of time buckets: one per minute for the
+ * last hour and one per hour for the last week. A query for a window up to an hour long reads the minute
+ * buckets and a longer one the hour buckets, so windows are rounded to whole minutes or hours.
+ * Dwell times are counted in log-sized buckets (8 per power of two of seconds), so dwell percentiles
+ * are within 12.5% of the true value.
+ *
+ * Not thread-safe: it is updated and read on the thread that runs the CarPark.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.Arrays;
+
+public class OccupancyStats
+{
+    public static final long MINUTE = 60 * 1000L;
+    public static final long HOUR = 60 * MINUTE;
+    public static final long DAY = 24 * HOUR;
+    public static final long WEEK = 7 * DAY;
+
+    private int spots; // number of spots in the group
+    private int occupied; // number of occupied spots in the group
+    private long arrivals; // cars parked since the start
+    private long departures; // cars removed since the start
+    private TimeSeries lastHour; // one bucket per minute
+    private TimeSeries lastWeek; // one bucket per hour
+
+    /**
+    Constructor that initializes an empty group.
+    **/
+    public OccupancyStats()
+    {
+        this.lastHour = new TimeSeries(60, MINUTE);
+        this.lastWeek = new TimeSeries(7 * 24, HOUR);
+    }
+
+    /**
+    Counts a spot added to the group.
+    **/
+    public void spotAdded(){
+        spots++;
+    }
+
+    /**
+    Counts a vacant spot removed from the group.
+    **/
+    public void spotRemoved(){
+        spots--;
+    }
+
+    /**
+    Counts a car parked in one of the group's spots.
+    @param parkedAt the parking time in epoch milliseconds
+    **/
+    public void carParked(long parkedAt){
+        occupied++;
+        arrivals++;
+        lastHour.arrival(parkedAt);
+        lastWeek.arrival(parkedAt);
+    }
+
+    /**
+    Counts a car removed from one of the group's spots.
+    @param parkedAt the parking time of the car in epoch milliseconds
+    @param removedAt the removal time in epoch milliseconds
+    **/
+    public void carRemoved(long parkedAt, long removedAt){
+        occupied--;
+        departures++;
+        long dwell = Math.max(0, removedAt - parkedAt);
+        lastHour.departure(removedAt, dwell);
+        lastWeek.departure(removedAt, dwell);
+    }
+
+    /**
+    Gets the number of spots in the group.
+    **/
+    public int getSpots(){
+        return this.spots;
+    }
+
+    /**
+    Gets the number of occupied spots in the group.
+    **/
+    public int getOccupied(){
+        return this.occupied;
+    }
+
+    /**
+    Gets the percentage of the group's spots that are occupied, 0 if it has no spots.
+    **/
+    public double getOccupancy(){
+        return spots == 0 ? 0 : 100.0 * occupied / spots;
+    }
+
+    /**
+    Gets the number of cars parked and removed since the group was created.
+    **/
+    public long getTotalArrivals(){
+        return this.arrivals;
+    }
+    public long getTotalDepartures(){
+        return this.departures;
+    }
+
+    /**
+    Gets the number of cars parked in a recent window.
+    @param window the window length in milliseconds, up to WEEK (e.g. HOUR, DAY)
+    @param now the current time in epoch milliseconds
+    **/
+    public long getArrivals(long window, long now){
+        return series(window).arrivals(window, now);
+    }
+
+    /**
+    Gets the number of cars removed in a recent window.
+    @param window the window length in milliseconds, up to WEEK
+    @param now the current time in epoch milliseconds
+    **/
+    public long getDepartures(long window, long now){
+        return series(window).departures(window, now);
+    }
+
+    /**
+    Gets the turnover in a recent window, i.e. the cars removed per spot.
+    @param window the window length in milliseconds, up to WEEK
+    @param now the current time in epoch milliseconds
+    @return departures divided by the current number of spots, 0 if there are no spots
+    **/
+    public double getTurnover(long window, long now){
+        return spots == 0 ? 0 : (double)getDepartures(window, now) / spots;
+    }
+
+    /**
+    Gets the mean dwell time of the cars removed in a recent window.
+    @param window the window length in milliseconds, up to WEEK
+    @param now the current time in epoch milliseconds
+    @return the mean dwell time in milliseconds, 0 if no car was removed
+    **/
+    public double getMeanDwell(long window, long now){
+        return series(window).meanDwell(window, now);
+    }
+
+    /**
+    Gets a dwell time percentile of the cars removed in a recent window.
+    @param percentile the percentile wanted, from 0 to 100 (e.g. 50, 95)
+    @param window the window length in milliseconds, up to WEEK
+    @param now the current time in epoch milliseconds
+    @return the upper end of the dwell bucket holding that percentile in milliseconds, 0 if no car was removed
+    **/
+    public long getDwellPercentile(double percentile, long window, long now){
+        return series(window).dwellPercentile(percentile, window, now);
+    }
+
+    /**
+    Picks the series that covers a window at the finest resolution.
+    **/
+    private TimeSeries series(long window){
+        if(window <= 0 || window > WEEK) throw new IllegalArgumentException("Window must be between 1ms and a week: " + window);
+        return window <= HOUR ? lastHour : lastWeek;
+    }
+
+    /**
+    A ring of equal time buckets, each counting arrivals, departures and the dwell times of the departures.
+    A bucket is cleared when the ring comes round to it again.
+    **/
+    private static class TimeSeries
+    {
+        private static final int SUB_BITS = 3; // 8 dwell buckets per power of two of seconds
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 22; // 2^22 seconds is about 48 days; longer dwells share the last bucket
+        private static final int DWELL_BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+        private long width; // bucket length in milliseconds
+        private long[] periods; // time / width of the period each bucket holds, -1 if never used
+        private int[] arrivals; // arrivals per bucket
+        private int[] departures; // departures per bucket
+        private long[] dwellTotals; // sum of dwell times per bucket, in milliseconds
+        private int[] dwellCounts; // dwell histogram per bucket, DWELL_BUCKETS counters each
+
+        TimeSeries(int buckets, long width)
+        {
+            this.width = width;
+            this.periods = new long[buckets];
+            Arrays.fill(periods, -1);
+            this.arrivals = new int[buckets];
+            this.departures = new int[buckets];
+            this.dwellTotals = new long[buckets];
+            this.dwellCounts = new int[buckets * DWELL_BUCKETS];
+        }
+
+        void arrival(long time){
+            int bucket = bucket(time);
+            if(bucket >= 0) arrivals[bucket]++;
+        }
+
+        void departure(long time, long dwell){
+            int bucket = bucket(time);
+            if(bucket < 0) return;
+            departures[bucket]++;
+            dwellTotals[bucket] += dwell;
+            dwellCounts[bucket * DWELL_BUCKETS + dwellBucket(dwell)]++;
+        }
+
+        long arrivals(long window, long now){
+            long sum = 0;
+            for(int bucket = first(window, now); bucket >= 0; bucket = next(bucket, now)){
+                sum += arrivals[bucket];
+            }
+            return sum;
+        }
+
+        long departures(long window, long now){
+            long sum = 0;
+            for(int bucket = first(window, now); bucket >= 0; bucket = next(bucket, now)){
+                sum += departures[bucket];
+            }
+            return sum;
+        }
+
+        double meanDwell(long window, long now){
+            long count = 0;
+            long total = 0;
+            for(int bucket = first(window, now); bucket >= 0; bucket = next(bucket, now)){
+                count += departures[bucket];
+                total += dwellTotals[bucket];
+            }
+            return count == 0 ? 0 : (double)total / count;
+        }
+
+        long dwellPercentile(double percentile, long window, long now){
+            int[] merged = new int[DWELL_BUCKETS];
+            long count = 0;
+            for(int bucket = first(window, now); bucket >= 0; bucket = next(bucket, now)){
+                for(int i = 0; i < DWELL_BUCKETS; i++){
+                    merged[i] += dwellCounts[bucket * DWELL_BUCKETS + i];
+                }
+                count += departures[bucket];
+            }
+            if(count == 0) return 0;
+            long rank = Math.max(1, (long)Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for(int i = 0; i < DWELL_BUCKETS; i++){
+                seen += merged[i];
+                if(seen >= rank) return upperBound(i) * 1000 + 999;
+            }
+            return upperBound(DWELL_BUCKETS - 1) * 1000 + 999;
+        }
+
+        /**
+        Gets the bucket for a time, clearing it if it still holds an older period.
+        @return the bucket, or -1 if the time is too old for the ring
+        **/
+        private int bucket(long time){
+            long period = Math.floorDiv(time, width);
+            int bucket = (int)Math.floorMod(period, (long)periods.length);
+            if(periods[bucket] == period) return bucket;
+            if(periods[bucket] > period) return -1; // the ring has moved past this time
+            periods[bucket] = period;
+            arrivals[bucket] = 0;
+            departures[bucket] = 0;
+            dwellTotals[bucket] = 0;
+            Arrays.fill(dwellCounts, bucket * DWELL_BUCKETS, (bucket + 1) * DWELL_BUCKETS, 0);
+            return bucket;
+        }
+
+        /**
+        Gets the oldest bucket in a window that holds data, or -1 if none does.
+        **/
+        private int first(long window, long now){
+            long last = Math.floorDiv(now, width);
+            long count = Math.min(periods.length, (window + width - 1) / width); // buckets in the window, rounded up
+            return seek(last - count + 1, last);
+        }
+
+        /**
+        Gets the next bucket after the given one that holds data up to now, or -1 if none does.
+        **/
+        private int next(int bucket, long now){
+            return seek(periods[bucket] + 1, Math.floorDiv(now, width));
+        }
+
+        /**
+        Finds the first bucket holding a period in [from, to], or -1.
+        **/
+        private int seek(long from, long to){
+            for(long period = from; period <= to; period++){
+                int bucket = (int)Math.floorMod(period, (long)periods.length);
+                if(periods[bucket] == period) return bucket;
+            }
+            return -1;
+        }
+
+        /**
+        Gets the dwell bucket for a dwell time; each power of two of seconds has 8 buckets.
+        **/
+        private static int dwellBucket(long dwell){
+            long seconds = dwell / 1000;
+            if(seconds < SUB_COUNT) return (int)seconds;
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(seconds), MAX_EXPONENT);
+            int sub = (int)(seconds >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            if(exponent == MAX_EXPONENT && seconds >>> MAX_EXPONENT > 1) sub = SUB_COUNT - 1; // beyond the range
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        /**
+        Gets the longest dwell time in whole seconds that falls in a dwell bucket.
+        **/
+        private static long upperBound(int bucket){
+            if(bucket < SUB_COUNT) return bucket;
+            int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+            int sub = bucket % SUB_COUNT;
+            return ((long)(SUB_COUNT + sub) << (exponent - SUB_BITS)) + (1L << (exponent - SUB_BITS)) - 1;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * This class counts the calls of one CarPark operation by result code and records how long they took.
+ * Operations that return a boolean count false as result 0 and true as result 1.
+ * Instances are published over JMX through OperationStatsMBean.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.concurrent.atomic.LongAdder;
+
+public class OperationStats implements OperationStatsMBean
+{
+    private String name; // operation name, e.g. parkCar
+    private LongAdder[] results; // calls by result code 0 to 3
+    private LatencyHistogram latency; // call times
+
+    /**
+    Constructor for OperationStats.
+    @param name the name of the operation
+    **/
+    public OperationStats(String name)
+    {
+        this.name = name;
+        this.results = new LongAdder[4];
+        for(int i = 0; i < results.length; i++){
+            results[i] = new LongAdder();
+        }
+        this.latency = new LatencyHistogram();
+    }
+
+    /**
+    Records a call that returned a result code.
+    @param start the System.nanoTime() when the call started
+    @param result the result code, from 0 to 3
+    @return the result, so a method can end with return stats.record(start, result)
+    **/
+    public int record(long start, int result){
+        latency.record(System.nanoTime() - start);
+        results[result].increment();
+        return result;
+    }
+
+    /**
+    Records a call that returned a boolean.
+    @param start the System.nanoTime() when the call started
+    @param result the returned value
+    @return the result, so a method can end with return stats.record(start, result)
+    **/
+    public boolean record(long start, boolean result){
+        latency.record(System.nanoTime() - start);
+        results[result ? 1 : 0].increment();
+        return result;
+    }
+
+    /**
+    Records a batch call as one call per item, each taking an equal share of the batch's time.
+    @param start the System.nanoTime() when the batch started
+    @param returned the result code returned for each item, from 0 to 3
+    **/
+    public void record(long start, int[] returned){
+        if(returned.length == 0) return;
+        long share = (System.nanoTime() - start) / returned.length;
+        for(int result : returned){
+            latency.record(share);
+            results[result].increment();
+        }
+    }
+
+    /**
+    Records a batch call as one call per item, each taking an equal share of the batch's time.
+    @param start the System.nanoTime() when the batch started
+    @param returned the value returned for each item
+    **/
+    public void record(long start, boolean[] returned){
+        if(returned.length == 0) return;
+        long share = (System.nanoTime() - start) / returned.length;
+        for(boolean result : returned){
+            latency.record(share);
+            results[result ? 1 : 0].increment();
+        }
+    }
+
+    /**
+    Records a call that returns nothing.
+    @param start the System.nanoTime() when the call started
+    **/
+    public void record(long start){
+        latency.record(System.nanoTime() - start);
+    }
+
+    /**
+    Gets the name of the operation.
+    **/
+    public String getName(){
+        return this.name;
+    }
+
+    /**
+    Gets the number of calls that returned a result code.
+    **/
+    public long getResultCount(int result){
+        return results[result].sum();
+    }
+
+    public long getCalls(){
+        return latency.getCount();
+    }
+
+    public long getResult0Count(){
+        return getResultCount(0);
+    }
+
+    public long getResult1Count(){
+        return getResultCount(1);
+    }
+
+    public long getResult2Count(){
+        return getResultCount(2);
+    }
+
+    public long getResult3Count(){
+        return getResultCount(3);
+    }
+
+    public double getMeanMicros(){
+        return latency.getMean() / 1000;
+    }
+
+    public double getP50Micros(){
+        return latency.getPercentile(50) / 1000.0;
+    }
+
+    public double getP99Micros(){
+        return latency.getPercentile(99) / 1000.0;
+    }
+
+    public double getP999Micros(){
+        return latency.getPercentile(99.9) / 1000.0;
+    }
+
+    public double getMaxMicros(){
+        return latency.getMax() / 1000.0;
+    }
+
+    /**
+    Forgets every recorded call.
+    **/
+    public void reset(){
+        for(LongAdder result : results){
+            result.reset();
+        }
+        latency.reset();
+    }
+}
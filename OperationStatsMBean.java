@@ -0,0 +1,21 @@
+/**
+ * The management interface of OperationStats, i.e. what JMX clients such as JConsole see for one CarPark operation.
+ * Times are in microseconds.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+public interface OperationStatsMBean
+{
+    long getCalls();
+    long getResult0Count();
+    long getResult1Count();
+    long getResult2Count();
+    long getResult3Count();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
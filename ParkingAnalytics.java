@@ -0,0 +1,110 @@
+/**
+ * This class keeps live occupancy, turnover and dwell-time figures for a car park as a whole and for
+ * each zone, a zone being the spots whose identifiers start with the same letter (e.g. A001 to A999).
+ * CarPark reports every spot and car change to it as it happens, so every figure is up to date
+ * without scanning the spots. See OccupancyStats for the figures kept.
+ *
+ * Not thread-safe: it is updated and read on the thread that runs the CarPark.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ParkingAnalytics
+{
+    private OccupancyStats lot; // figures for the whole car park
+    private TreeMap<Character, OccupancyStats> zones; // first identifier letter -> figures for that zone
+
+    /**
+    Constructor that initializes empty figures.
+    **/
+    public ParkingAnalytics()
+    {
+        this.lot = new OccupancyStats();
+        this.zones = new TreeMap<Character, OccupancyStats>();
+    }
+
+    /**
+    Counts a spot added to the car park.
+    **/
+    public void spotAdded(String identifier){
+        lot.spotAdded();
+        zone(identifier).spotAdded();
+    }
+
+    /**
+    Counts a vacant spot removed from the car park.
+    **/
+    public void spotRemoved(String identifier){
+        lot.spotRemoved();
+        zone(identifier).spotRemoved();
+    }
+
+    /**
+    Counts a car parked.
+    @param identifier the spot the car was parked in
+    @param parkedAt the parking time in epoch milliseconds
+    **/
+    public void carParked(String identifier, long parkedAt){
+        lot.carParked(parkedAt);
+        zone(identifier).carParked(parkedAt);
+    }
+
+    /**
+    Counts a car removed.
+    @param identifier the spot the car was removed from
+    @param parkedAt the parking time of the car in epoch milliseconds
+    @param removedAt the removal time in epoch milliseconds
+    **/
+    public void carRemoved(String identifier, long parkedAt, long removedAt){
+        lot.carRemoved(parkedAt, removedAt);
+        zone(identifier).carRemoved(parkedAt, removedAt);
+    }
+
+    /**
+    Forgets every figure, e.g. before they are rebuilt from a car park restored from disk.
+    **/
+    public void clear(){
+        lot = new OccupancyStats();
+        zones.clear();
+    }
+
+    /**
+    Gets the figures for the whole car park.
+    **/
+    public OccupancyStats getLot(){
+        return this.lot;
+    }
+
+    /**
+    Gets the figures for one zone.
+    @param letter the first letter of the zone's spot identifiers
+    @return the zone's figures, or null if no spot was ever added to the zone
+    **/
+    public OccupancyStats getZone(char letter){
+        return zones.get(letter);
+    }
+
+    /**
+    Gets the figures of every zone, ordered by letter.
+    **/
+    public Map<Character, OccupancyStats> getZones(){
+        return Collections.unmodifiableMap(zones);
+    }
+
+    /**
+    Gets the figures of the zone an identifier belongs to, creating them on first use.
+    **/
+    private OccupancyStats zone(String identifier){
+        char letter = identifier.isEmpty() ? ' ' : identifier.charAt(0);
+        OccupancyStats stats = zones.get(letter);
+        if(stats == null){
+            stats = new OccupancyStats();
+            zones.put(letter, stats);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,309 @@
+/**
+ * This class imports and exports parking spots and parked cars as CSV, one spot per row:
+ *
+ *   identifier,registration,make,model,year,parkedAt
+ *   A001,T1234,Toyota,Corolla,2015,1715558400000
+ *   A002,,,,,
+ *
+ * A row with no registration is a vacant spot. parkedAt is the parking time in epoch milliseconds;
+ * if it is left empty the car is parked now. Fields holding commas or quotes are quoted, with quotes doubled.
+ *
+ * Both directions stream: rows are read and written through buffers a chunk at a time, so memory use
+ * depends on the chunk size, not the file size. Each chunk of rows is parsed and checked in parallel with
+ * CarPark's validateIdentifier, validateRegistration and validateYear rules, then the valid rows are fed to
+ * the car park in file order through one call each of its batch methods, addSpots and parkCars.
+ * Invalid or refused rows are skipped and reported with their line numbers; the rest of the file is still imported.
+ *
+ * Import and export must run on the thread that runs the CarPark.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class ParkingCsv
+{
+    public static final String HEADER = "identifier,registration,make,model,year,parkedAt";
+    private static final int CHUNK = 64 * 1024; // rows read, checked and imported at a time
+    private static final int BUFFER = 256 * 1024; // characters buffered per read or write
+    private static final int MAX_ERRORS = 100; // rejected rows described in a report; the rest are only counted
+
+    /**
+    Imports the spots and cars of a CSV file into a car park.
+    @param path the CSV file, UTF-8 encoded, with or without a header row
+    @param carPark the car park to fill
+    @return what was imported and what was rejected
+    @throws IOException if the file cannot be read
+    **/
+    public static Report importFrom(Path path, CarPark carPark) throws IOException{
+        try(Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+            return importFrom(in, carPark);
+        }
+    }
+
+    /**
+    Imports the spots and cars of CSV text into a car park.
+    @param in the CSV text, with or without a header row
+    @param carPark the car park to fill
+    @return what was imported and what was rejected
+    @throws IOException if the text cannot be read
+    **/
+    public static Report importFrom(Reader in, CarPark carPark) throws IOException{
+        BufferedReader reader = new BufferedReader(in, BUFFER);
+        Report report = new Report();
+        ArrayList<String> lines = new ArrayList<String>(CHUNK);
+        int firstLine = 1; // line number of lines.get(0)
+        String line;
+        while((line = reader.readLine()) != null){
+            if(report.rows == 0 && lines.isEmpty() && line.startsWith("identifier,")){ // header
+                firstLine++;
+                continue;
+            }
+            lines.add(line);
+            if(lines.size() == CHUNK){
+                importChunk(lines, firstLine, carPark, report);
+                firstLine += lines.size();
+                lines.clear();
+            }
+        }
+        importChunk(lines, firstLine, carPark, report);
+        return report;
+    }
+
+    /**
+    Parses and checks a chunk of rows in parallel, then adds the valid ones to the car park in order.
+    **/
+    private static void importChunk(ArrayList<String> lines, int firstLine, CarPark carPark, Report report){
+        if(lines.isEmpty()) return;
+        Row[] rows = new Row[lines.size()];
+        IntStream.range(0, rows.length).parallel().forEach((i) -> rows[i] = parse(lines.get(i), carPark)); // the validate methods are stateless
+        report.rows += rows.length;
+
+        ArrayList<String> identifiers = new ArrayList<String>(rows.length);
+        for(int i = 0; i < rows.length; i++){
+            if(rows[i].error != null) report.reject(firstLine + i, rows[i].error);
+            else identifiers.add(rows[i].identifier);
+        }
+        for(boolean added : carPark.addSpots(identifiers)){
+            if(added) report.spotsAdded++; // an existing spot is kept, and may still receive the row's car
+        }
+
+        ArrayList<Integer> parked = new ArrayList<Integer>(rows.length); // rows holding a car, in file order
+        for(int i = 0; i < rows.length; i++){
+            if(rows[i].error == null && rows[i].car != null) parked.add(i);
+        }
+        ArrayList<String> spots = new ArrayList<String>(parked.size());
+        ArrayList<Car> cars = new ArrayList<Car>(parked.size());
+        long[] parkedAts = new long[parked.size()]; // -1 parks the car now
+        for(int j = 0; j < parkedAts.length; j++){
+            Row row = rows[parked.get(j)];
+            spots.add(row.identifier);
+            cars.add(row.car);
+            parkedAts[j] = row.parkedAt;
+        }
+        int[] results = carPark.parkCars(spots, cars, parkedAts);
+        for(int j = 0; j < results.length; j++){
+            int line = firstLine + parked.get(j);
+            if(results[j] == 3) report.carsParked++; // success
+            else if(results[j] == 1) report.reject(line, "spot is occupied or reserved");
+            else if(results[j] == 2) report.reject(line, "car is already parked in another spot");
+            else report.reject(line, "spot does not exist");
+        }
+    }
+
+    /**
+    Parses and checks one row.
+    **/
+    private static Row parse(String line, CarPark carPark){
+        Row row = new Row();
+        String[] fields = split(line);
+        if(fields == null) return row.fail("unmatched quote");
+        if(fields.length != 1 && fields.length != 6) return row.fail("expected 6 fields, found " + fields.length);
+        row.identifier = fields[0];
+        if(!carPark.validateIdentifier(row.identifier)) return row.fail("invalid identifier " + row.identifier + ", correct format example: A101");
+        if(fields.length == 1 || (fields[1].isEmpty() && fields[2].isEmpty() && fields[3].isEmpty() && fields[4].isEmpty() && fields[5].isEmpty())){
+            return row; // vacant spot
+        }
+        if(!carPark.validateRegistration(fields[1])) return row.fail("invalid registration " + fields[1] + ", correct format example: T1234");
+        if(fields[2].isEmpty()) return row.fail("missing make");
+        if(fields[3].isEmpty()) return row.fail("missing model");
+        if(!carPark.validateYear(fields[4])) return row.fail("year " + fields[4] + " is not between 2004 and 2024");
+        row.parkedAt = -1;
+        if(!fields[5].isEmpty()){
+            try{
+                row.parkedAt = Long.parseLong(fields[5]);
+            }catch(NumberFormatException e){
+                return row.fail("invalid parking time " + fields[5]);
+            }
+            if(row.parkedAt < 0) return row.fail("invalid parking time " + fields[5]);
+        }
+        row.car = new Car(fields[1], fields[2], fields[3], Integer.parseInt(fields[4]));
+        return row;
+    }
+
+    /**
+    Splits a row into fields, unquoting quoted ones.
+    @return the fields, or null if a quote is not closed
+    **/
+    private static String[] split(String line){
+        if(line.indexOf('"') < 0){ // no quoting, the usual case: cut at the commas without copying characters
+            int count = 1;
+            for(int i = line.indexOf(','); i >= 0; i = line.indexOf(',', i + 1)) count++;
+            String[] fields = new String[count];
+            int from = 0;
+            for(int f = 0; f < count - 1; f++){
+                int comma = line.indexOf(',', from);
+                fields[f] = line.substring(from, comma);
+                from = comma + 1;
+            }
+            fields[count - 1] = line.substring(from);
+            return fields;
+        }
+        ArrayList<String> fields = new ArrayList<String>(6);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for(int i = 0; i < line.length(); i++){
+            char c = line.charAt(i);
+            if(quoted){
+                if(c != '"') field.append(c);
+                else if(i + 1 < line.length() && line.charAt(i + 1) == '"') field.append(line.charAt(++i)); // doubled quote
+                else quoted = false;
+            }else if(c == '"'){
+                quoted = true;
+            }else if(c == ','){
+                fields.add(field.toString());
+                field.setLength(0);
+            }else{
+                field.append(c);
+            }
+        }
+        if(quoted) return null;
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+    Exports every spot and parked car of a car park to a CSV file, with a header row.
+    @param carPark the car park to save
+    @param path the CSV file, written as UTF-8 and replaced if it exists
+    @return the number of rows written, not counting the header
+    @throws IOException if the file cannot be written
+    **/
+    public static int exportTo(CarPark carPark, Path path) throws IOException{
+        try(Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)){
+            return exportTo(carPark, out);
+        }
+    }
+
+    /**
+    Exports every spot and parked car of a car park as CSV text, with a header row.
+    @param carPark the car park to save
+    @param out where to write the text
+    @return the number of rows written, not counting the header
+    @throws IOException if the text cannot be written
+    **/
+    public static int exportTo(CarPark carPark, Writer out) throws IOException{
+        BufferedWriter writer = new BufferedWriter(out, BUFFER);
+        writer.write(HEADER);
+        writer.newLine();
+        ArrayList<ParkingSpot> parkingSpots = carPark.viewAllSpots();
+        for(ParkingSpot parkingSpot : parkingSpots){
+            writer.write(quote(parkingSpot.getIdentifier()));
+            if(parkingSpot.getStatus()){
+                writer.write(",,,,,");
+            }else{
+                Car car = parkingSpot.getCar();
+                writer.write(',');
+                writer.write(quote(car.getRegistration()));
+                writer.write(',');
+                writer.write(quote(car.getMake()));
+                writer.write(',');
+                writer.write(quote(car.getModel()));
+                writer.write(',');
+                writer.write(car.getYear());
+                writer.write(',');
+                writer.write(Long.toString(parkingSpot.getParkedAt()));
+            }
+            writer.newLine();
+        }
+        writer.flush();
+        return parkingSpots.size();
+    }
+
+    /**
+    Quotes a field if it holds a comma, quote or line break.
+    **/
+    private static String quote(String field){
+        for(int i = 0; i < field.length(); i++){
+            char c = field.charAt(i);
+            if(c == ',' || c == '"' || c == '\n' || c == '\r'){
+                return "\"" + field.replace("\"", "\"\"") + "\"";
+            }
+        }
+        return field;
+    }
+
+    /**
+    One parsed row: a spot, its car if any, or why the row was rejected.
+    **/
+    private static class Row
+    {
+        private String identifier;
+        private Car car; // null for a vacant spot
+        private long parkedAt; // parking time in epoch milliseconds, -1 to park now
+        private String error; // why the row was rejected, null if valid
+
+        Row fail(String error){
+            this.error = error;
+            return this;
+        }
+    }
+
+    /**
+    What an import did: rows read, spots added, cars parked, and the rows rejected with their line numbers.
+    **/
+    public static class Report
+    {
+        private int rows; // rows read, not counting the header
+        private int spotsAdded; // spots that did not exist before
+        private int carsParked; // cars parked
+        private int rejected; // rows skipped
+        private ArrayList<String> errors = new ArrayList<String>(); // the first MAX_ERRORS rejections
+
+        private void reject(int line, String reason){
+            rejected++;
+            if(errors.size() < MAX_ERRORS) errors.add("line " + line + ": " + reason);
+        }
+
+        public int getRows(){
+            return this.rows;
+        }
+        public int getSpotsAdded(){
+            return this.spotsAdded;
+        }
+        public int getCarsParked(){
+            return this.carsParked;
+        }
+        public int getRejected(){
+            return this.rejected;
+        }
+
+        /**
+        Gets why rows were rejected, e.g. "line 12: invalid registration T12", for up to the first 100 rejected rows.
+        **/
+        public List<String> getErrors(){
+            return Collections.unmodifiableList(errors);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * This class is a stream of the changes made to a car park: spots added and removed, cars parked and removed.
+ * CarPark publishes an event for every change once a stream is attached (see CarPark.setEvents), and any
+ * number of consumers, such as the GUI, persistence or metrics, each read the stream at their own pace.
+ *
+ * Events are kept in a ring buffer whose slots are allocated once, up front, so publishing creates no
+ * objects. The publishing thread never waits for consumers: when the ring is full it overwrites the oldest
+ * event. A consumer that falls that far behind skips ahead to the oldest event still in the ring and counts
+ * the events it missed, which tells it to re-read the car park if it needs an exact picture.
+ *
+ * Only one thread may publish at a time, which is the case for a CarPark run on one thread.
+ * Each Consumer must be polled by one thread at a time, but different consumers may run on different threads.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+public class ParkingEvents
+{
+    // event types
+    public static final int SPOT_ADDED = 1;
+    public static final int SPOT_REMOVED = 2;
+    public static final int CAR_PARKED = 3;
+    public static final int CAR_REMOVED = 4;
+
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long WRITING = -1; // slot sequence while the publisher is overwriting the slot
+
+    private int mask; // capacity - 1, capacity being a power of two
+    private long[] sequences; // sequence number of the event in each slot, 0 if never written
+    private int[] types; // event type in each slot
+    private String[] identifiers; // spot identifier in each slot
+    private String[] registrations; // car registration in each slot, null for spot events
+    private long[] times; // time of the event in each slot, in epoch milliseconds
+    private long[] parkedAts; // parking time of the car in each slot, 0 for spot events
+    private volatile long published; // sequence number of the last event published
+
+    /**
+    Constructor that allocates every slot of the ring.
+    @param capacity the number of events kept, rounded up to a power of two
+    **/
+    public ParkingEvents(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new long[size];
+        this.types = new int[size];
+        this.identifiers = new String[size];
+        this.registrations = new String[size];
+        this.times = new long[size];
+        this.parkedAts = new long[size];
+    }
+
+    /**
+    Gets the number of events the ring keeps.
+    **/
+    public int getCapacity(){
+        return mask + 1;
+    }
+
+    /**
+    Gets the sequence number of the last event published, 0 if none.
+    **/
+    public long getPublished(){
+        return this.published;
+    }
+
+    /**
+    Publishes an event. Never waits and creates no objects.
+    Single writer only: calls must come from one thread at a time (the thread running the CarPark), since two
+    publishers at once would claim the same sequence number and slot.
+    @param type one of SPOT_ADDED, SPOT_REMOVED, CAR_PARKED or CAR_REMOVED
+    @param identifier the spot identifier
+    @param registration the car registration, or null for spot events
+    @param time the time of the event in epoch milliseconds
+    @param parkedAt the parking time of the car, or 0 for spot events
+    **/
+    public void publish(int type, String identifier, String registration, long time, long parkedAt){
+        long sequence = published + 1;
+        int slot = (int)sequence & mask;
+        SEQUENCES.setOpaque(sequences, slot, WRITING); // consumers still reading the old event see it change
+        VarHandle.storeStoreFence();
+        types[slot] = type;
+        identifiers[slot] = identifier;
+        registrations[slot] = registration;
+        times[slot] = time;
+        parkedAts[slot] = parkedAt;
+        SEQUENCES.setRelease(sequences, slot, sequence);
+        published = sequence;
+    }
+
+    /**
+    Creates a consumer that reads the events published from now on.
+    **/
+    public Consumer subscribe(){
+        return new Consumer(published + 1);
+    }
+
+    /**
+    Receives the events read by a Consumer.
+    **/
+    public interface Handler
+    {
+        /**
+        Called once per event, in publishing order.
+        @param type one of SPOT_ADDED, SPOT_REMOVED, CAR_PARKED or CAR_REMOVED
+        @param identifier the spot identifier
+        @param registration the car registration, or null for spot events
+        @param time the time of the event in epoch milliseconds
+        @param parkedAt the parking time of the car, or 0 for spot events
+        **/
+        void onEvent(int type, String identifier, String registration, long time, long parkedAt);
+    }
+
+    /**
+    One reader of the stream, with its own position in it.
+    **/
+    public class Consumer
+    {
+        private long next; // sequence number of the next event to read
+        private long lost; // events overwritten before they were read
+
+        private Consumer(long next)
+        {
+            this.next = next;
+        }
+
+        /**
+        Reads the events published since the last poll and passes them to a handler.
+        If the publisher has overwritten events this consumer had not read yet, they are skipped and counted in getLost().
+        @param handler receives the events
+        @param max the largest number of events to read in this call
+        @return the number of events passed to the handler
+        **/
+        public int poll(Handler handler, int max){
+            int count = 0;
+            while(count < max){
+                int slot = (int)next & mask;
+                long sequence = (long)SEQUENCES.getAcquire(sequences, slot);
+                if(sequence == next){
+                    int type = types[slot];
+                    String identifier = identifiers[slot];
+                    String registration = registrations[slot];
+                    long time = times[slot];
+                    long parkedAt = parkedAts[slot];
+                    VarHandle.loadLoadFence();
+                    if((long)SEQUENCES.getOpaque(sequences, slot) == sequence){
+                        next++;
+                        count++;
+                        handler.onEvent(type, identifier, registration, time, parkedAt);
+                        continue;
+                    }
+                }else if(sequence < next && sequence != WRITING){
+                    return count; // caught up with the publisher
+                }else if(sequence == WRITING && published < next){
+                    return count; // the event we want is being written right now
+                }
+                skipOverwritten(); // the event was overwritten while or before we read it
+            }
+            return count;
+        }
+
+        /**
+        Moves past overwritten events to the oldest event still in the ring.
+        **/
+        private void skipOverwritten(){
+            long oldest = published - mask; // leave one slot of room for the event being written
+            if(oldest > next){
+                lost += oldest - next;
+                next = oldest;
+            }
+        }
+
+        /**
+        Gets the number of events skipped because the publisher overwrote them before they were read.
+        A consumer that sees this grow should re-read the car park instead of trusting its own picture.
+        **/
+        public long getLost(){
+            return this.lost;
+        }
+
+        /**
+        Gets the number of published events this consumer has not read yet, at most the ring capacity.
+        **/
+        public long getBacklog(){
+            return Math.min(published - next + 1, mask + 1);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/**
+ * This class is an append-only write-ahead log of car park mutations.
+ * CarPark appends a record for every spot added or deleted, car parked or removed, reset, and spot
+ * reserved or reservation cancelled, and replay() rebuilds a CarPark from the log after a restart or a crash.
+ *
+ * Records are buffered and flushed to disk in groups: the log is forced to disk once every
+ * syncEveryRecords records, and at least every syncEveryMillis milliseconds by a background thread,
+ * so a busy gate does not pay one disk flush per event. Call sync() when a caller must know its
+ * records are on disk.
+ *
+ * Each record is stored as [payload length][CRC32 of payload][payload]. A record cut short by a crash
+ * fails its length or checksum check, and replay() truncates the log back to the last whole record.
+ * Removals and resets carry the time they happened, so replay gives the same dwell times as the original run;
+ * records written before the time was added are replayed at the current time.
+ *
+ * The log is fail-stop: once a write or a disk flush fails, including one made by the background thread,
+ * every later append and sync throws. A failed flush is never retried, since a retry can report success
+ * after the operating system has dropped the unwritten data.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class ParkingLog
+{
+    // record types
+    public static final byte ADD_SPOT = 1;
+    public static final byte DELETE_SPOT = 2;
+    public static final byte PARK_CAR = 3;
+    public static final byte REMOVE_CAR = 4;
+    public static final byte RESET = 5;
+    public static final byte RESERVE = 6;
+    public static final byte CANCEL_RESERVATION = 7;
+
+    private static final int MAX_RECORD_SIZE = 1 << 16; // anything larger is treated as a torn record
+
+    private FileOutputStream file; // log file, opened for appending
+    private DataOutputStream out; // buffered stream over file
+    private ByteArrayOutputStream payload; // reused buffer for the record being written
+    private DataOutputStream payloadOut; // stream over payload
+    private CRC32 crc; // reused checksum
+    private long sequence; // sequence number of the last record appended
+    private int unsynced; // records appended since the last sync
+    private int syncEveryRecords; // group commit size
+    private ScheduledExecutorService flusher; // background group commit timer
+    private IOException failure; // first write or flush failure, after which the log refuses all work
+
+    /**
+    Constructor that opens a log file for appending.
+    @param path the log file, created if missing
+    @param lastSequence the sequence number of the last record already in the file, as returned by replay()
+    @param syncEveryRecords force the log to disk after this many records
+    @param syncEveryMillis force the log to disk at least this often, 0 to only sync by record count
+    @throws IOException if the file cannot be opened
+    **/
+    public ParkingLog(Path path, long lastSequence, int syncEveryRecords, long syncEveryMillis) throws IOException
+    {
+        this.file = new FileOutputStream(path.toFile(), true);
+        this.out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+        this.payload = new ByteArrayOutputStream(256);
+        this.payloadOut = new DataOutputStream(payload);
+        this.crc = new CRC32();
+        this.sequence = lastSequence;
+        this.syncEveryRecords = Math.max(1, syncEveryRecords);
+        if(syncEveryMillis > 0){
+            flusher = Executors.newSingleThreadScheduledExecutor((r) -> {
+                Thread t = new Thread(r, "parking-log-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(() -> {
+                try{
+                    syncIfDirty();
+                }catch(IOException e){
+                    // kept in failure, so the next append or sync reports it to the caller
+                }
+            }, syncEveryMillis, syncEveryMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+    Gets the sequence number of the last record appended.
+    **/
+    public synchronized long getSequence(){
+        return this.sequence;
+    }
+
+    /**
+    Appends an ADD_SPOT record.
+    **/
+    public synchronized void addSpot(String identifier){
+        try{
+            begin(ADD_SPOT);
+            payloadOut.writeUTF(identifier);
+            end();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+    Appends a DELETE_SPOT record.
+    **/
+    public synchronized void deleteSpot(String identifier){
+        try{
+            begin(DELETE_SPOT);
+            payloadOut.writeUTF(identifier);
+            end();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+    Appends a PARK_CAR record.
+    **/
+    public synchronized void parkCar(String identifier, Car car, long parkedAt){
+        try{
+            begin(PARK_CAR);
+            payloadOut.writeUTF(identifier);
+            payloadOut.writeUTF(car.getRegistration());
+            payloadOut.writeUTF(car.getMake());
+            payloadOut.writeUTF(car.getModel());
+            payloadOut.writeUTF(car.getYear());
+            payloadOut.writeLong(parkedAt);
+            end();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+    Appends a REMOVE_CAR record.
+    @param registration the car removed
+    @param removedAt the removal time in epoch milliseconds
+    **/
+    public synchronized void removeCar(String registration, long removedAt){
+        try{
+            begin(REMOVE_CAR);
+            payloadOut.writeUTF(registration);
+            payloadOut.writeLong(removedAt);
+            end();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+    Appends a RESET record.
+    @param removedAt the time the cars were removed, in epoch milliseconds
+    **/
+    public synchronized void reset(long removedAt){
+        try{
+            begin(RESET);
+            payloadOut.writeLong(removedAt);
+            end();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+    Appends a RESERVE record.
+    @param identifier the spot booked
+    @param registration the car the spot is held for
+    @param start the start of the window in epoch milliseconds
+    @param end the end of the window in epoch milliseconds, exclusive
+    **/
+    public synchronized void reserve(String identifier, String registration, long start, long end){
+        try{
+            begin(RESERVE);
+            payloadOut.writeUTF(identifier);
+            payloadOut.writeUTF(registration);
+            payloadOut.writeLong(start);
+            payloadOut.writeLong(end);
+            end();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+    Appends a CANCEL_RESERVATION record.
+    @param identifier the spot booked
+    @param start the start of the cancelled window in epoch milliseconds
+    **/
+    public synchronized void cancelReservation(String identifier, long start){
+        try{
+            begin(CANCEL_RESERVATION);
+            payloadOut.writeUTF(identifier);
+            payloadOut.writeLong(start);
+            end();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+    Forces every record appended so far to disk.
+    @throws IOException if the write or the flush fails, now or at any earlier append or sync
+    **/
+    public synchronized void sync() throws IOException{
+        checkFailure();
+        try{
+            out.flush();
+            file.getChannel().force(false);
+        }catch(IOException e){
+            throw fail(e);
+        }
+        unsynced = 0;
+    }
+
+    /**
+    Drops every record appended so far, once a ParkingSnapshot holds them.
+    Sequence numbers carry on from where they were, so the snapshot's sequence still lines up.
+    @throws IOException if the log cannot be flushed or truncated
+    **/
+    public synchronized void truncate() throws IOException{
+        sync();
+        file.getChannel().truncate(0);
+    }
+
+    /**
+    Forces the log to disk and closes it.
+    @throws IOException if the final flush fails
+    **/
+    public synchronized void close() throws IOException{
+        if(flusher != null) flusher.shutdown();
+        try{
+            sync();
+        }finally{
+            out.close();
+        }
+    }
+
+    /**
+    Starts a record in the payload buffer.
+    **/
+    private void begin(byte type) throws IOException{
+        checkFailure();
+        payload.reset();
+        payloadOut.writeByte(type);
+        payloadOut.writeLong(sequence + 1);
+    }
+
+    /**
+    Frames the payload buffer as a record, writes it and syncs if the group is full.
+    **/
+    private void end() throws IOException{
+        byte[] bytes = payload.toByteArray();
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        try{
+            out.writeInt(bytes.length);
+            out.writeInt((int)crc.getValue());
+            out.write(bytes);
+        }catch(IOException e){
+            throw fail(e);
+        }
+        sequence++;
+        if(++unsynced >= syncEveryRecords) sync();
+    }
+
+    /**
+    Throws the failure that stopped the log, if any.
+    **/
+    private void checkFailure() throws IOException{
+        if(failure != null) throw new IOException("Parking log stopped after an earlier write failure", failure);
+    }
+
+    /**
+    Records the first failure, which stops the log, and returns the given one to be thrown.
+    **/
+    private IOException fail(IOException e){
+        if(failure == null) failure = e;
+        return e;
+    }
+
+    /**
+    Syncs if anything was appended since the last sync. Called by the flusher thread.
+    **/
+    private synchronized void syncIfDirty() throws IOException{
+        if(unsynced > 0) sync();
+    }
+
+    /**
+    Replays a log into a car park. The car park should not have a log attached while replaying.
+    A torn record at the end of the log is cut off so that new records can be appended after it.
+    @param path the log file; a missing file replays nothing
+    @param carPark the car park to apply the records to
+    @return the sequence number of the last record replayed, 0 if none
+    @throws IOException if the file cannot be read
+    **/
+    public static long replay(Path path, CarPark carPark) throws IOException{
+        return replay(path, carPark, 0);
+    }
+
+    /**
+    Replays the records of a log that come after a given sequence number into a car park.
+    @param path the log file; a missing file replays nothing
+    @param carPark the car park to apply the records to
+    @param afterSequence records with this sequence number or lower are skipped
+    @return the sequence number of the last record in the log, or afterSequence if it is higher
+    @throws IOException if the file cannot be read
+    **/
+    public static long replay(Path path, CarPark carPark, long afterSequence) throws IOException{
+        if(!Files.exists(path)) return afterSequence;
+        long last = afterSequence;
+        long goodEnd = 0; // file position after the last whole record
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+            CRC32 crc = new CRC32();
+            while(true){
+                byte[] bytes;
+                try{
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if(length <= 0 || length > MAX_RECORD_SIZE) break; // torn record
+                    bytes = new byte[length];
+                    in.readFully(bytes);
+                    crc.reset();
+                    crc.update(bytes, 0, length);
+                    if((int)crc.getValue() != checksum) break; // torn record
+                }catch(EOFException e){
+                    break; // end of log, or a torn record
+                }
+                goodEnd += 8 + bytes.length;
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+                byte type = record.readByte();
+                long sequence = record.readLong();
+                if(sequence > afterSequence) apply(type, record, carPark);
+                last = Math.max(last, sequence);
+            }
+            if(channel.size() > goodEnd) channel.truncate(goodEnd);
+        }
+        return last;
+    }
+
+    /**
+    Applies one record to a car park.
+    **/
+    private static void apply(byte type, DataInputStream record, CarPark carPark) throws IOException{
+        switch(type){
+            case ADD_SPOT:
+                carPark.addSpot(record.readUTF());
+                break;
+            case DELETE_SPOT:
+                carPark.deleteSpot(record.readUTF());
+                break;
+            case PARK_CAR:
+                String identifier = record.readUTF();
+                Car car = new Car(record.readUTF(), record.readUTF(), record.readUTF(), record.readUTF());
+                carPark.parkCar(identifier, car, record.readLong());
+                break;
+            case REMOVE_CAR:
+                String registration = record.readUTF();
+                if(record.available() >= 8) carPark.checkOut(registration, record.readLong());
+                else carPark.checkOut(registration); // written before removal times were logged
+                break;
+            case RESET:
+                if(record.available() >= 8) carPark.reset(record.readLong());
+                else carPark.reset();
+                break;
+            case RESERVE: // straight into the book: the booking was accepted when it was made, whatever the time is now
+                carPark.getReservations().reserve(record.readUTF(), record.readUTF(), record.readLong(), record.readLong());
+                break;
+            case CANCEL_RESERVATION:
+                carPark.getReservations().cancel(record.readUTF(), record.readLong());
+                break;
+            default:
+                throw new IOException("Unknown log record type " + type);
+        }
+    }
+}
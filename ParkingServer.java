@@ -0,0 +1,346 @@
+/**
+ * This class serves a car park over HTTP, for gate kiosks and the mobile app, without any display.
+ * It uses the JDK's built-in HTTP server and a ConcurrentCarPark, so many requests are handled at once.
+ * Each request runs on its own virtual thread when the JVM has them (Java 21 and later), and on a
+ * pooled platform thread otherwise.
+ *
+ * Every response is JSON. Parameters are passed in the query string:
+ *   GET    /spots                                      all spots
+ *   GET    /spots?id=A001                              one spot
+ *   POST   /spots?id=A001                              add a spot
+ *   DELETE /spots?id=A001                              delete a spot
+ *   POST   /cars?spot=A001&registration=T1234&make=Toyota&model=Corolla&year=2015    park a car
+ *   DELETE /cars?registration=T1234                    remove a car
+ *   GET    /cars?registration=T1234                    find a car by registration
+ *   GET    /cars?make=Toyota or /cars?model=Corolla    find cars by make or model
+ *   GET    /vacancies                                  the number of vacant spots
+ * Parking a car and deleting a spot answer with CarPark's parkCar and deleteSpot result codes in a "code" field;
+ * the other changes, which CarPark answers with true or false, only carry a "message" and the HTTP status.
+ * Makes and models are limited to MAX_NAME_LENGTH letters, digits, spaces, hyphens and dots, since every new
+ * value is kept in the shared VehicleDictionary.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ParkingServer
+{
+    public static final int MAX_NAME_LENGTH = 32; // longest make or model accepted
+    private ConcurrentCarPark cp; // the car park served
+    private CarPark rules; // empty car park, only used for its input validation
+    private HttpServer server; // the HTTP server, null until started
+    private ExecutorService executor; // runs the requests
+
+    /**
+    Constructor for ParkingServer.
+    @param cp the car park to serve
+    **/
+    public ParkingServer(ConcurrentCarPark cp)
+    {
+        this.cp = cp;
+        this.rules = new CarPark();
+    }
+
+    /**
+    Starts serving requests.
+    @param port the port to listen on, 0 for any free port
+    @return the port the server listens on
+    @throws IOException if the port cannot be bound
+    **/
+    public int start(int port) throws IOException{
+        // without TCP_NODELAY small responses wait on delayed ACKs, capping each connection near 25 requests/s;
+        // the JDK reads this once, when the first server in the JVM is created
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/spots", (exchange) -> handle(exchange, this::spots));
+        server.createContext("/cars", (exchange) -> handle(exchange, this::cars));
+        server.createContext("/vacancies", (exchange) -> handle(exchange, this::vacancies));
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+    Stops the server, giving requests in progress up to a second to finish.
+    **/
+    public void stop(){
+        if(server != null) server.stop(1);
+        if(executor != null) executor.shutdown();
+    }
+
+    /**
+    Creates a virtual-thread-per-request executor if the JVM supports it, or a cached thread pool otherwise.
+    Looked up by reflection so the class still compiles and runs on Java 17.
+    **/
+    private static ExecutorService newRequestExecutor(){
+        try{
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }catch(ReflectiveOperationException e){
+            return Executors.newCachedThreadPool((r) -> {
+                Thread t = new Thread(r, "parking-server");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+    Handles one endpoint request.
+    **/
+    private interface Endpoint
+    {
+        /**
+        @param method the HTTP method
+        @param query the decoded query parameters
+        @return the response
+        **/
+        Response serve(String method, HashMap<String, String> query);
+    }
+
+    /**
+    A status code with a JSON body.
+    **/
+    private static class Response
+    {
+        final int status;
+        final String body;
+
+        Response(int status, String body)
+        {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+    Runs an endpoint and writes its response. A malformed query becomes a 400 response and any other failure a 500.
+    **/
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException{
+        Response response;
+        try{
+            response = endpoint.serve(exchange.getRequestMethod(), parseQuery(exchange.getRequestURI().getRawQuery()));
+        }catch(IllegalArgumentException e){
+            response = error(400, "Malformed request");
+        }catch(RuntimeException e){
+            response = error(500, "Internal error");
+        }
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try(OutputStream out = exchange.getResponseBody()){
+            out.write(bytes);
+        }
+    }
+
+    /**
+    Serves /spots.
+    **/
+    private Response spots(String method, HashMap<String, String> query){
+        String identifier = query.get("id");
+        if(method.equals("GET") && identifier == null){
+            return spotList(cp.viewAllSpots());
+        }
+        if(!rules.validateIdentifier(identifier)){
+            return error(400, "Invalid identifier: it should be an uppercase letter followed by 3 digits");
+        }
+        switch(method){
+            case "GET":
+                ParkingSpot parkingSpot = cp.findSpot(identifier);
+                if(parkingSpot == null) return error(404, "Spot does not exist");
+                return new Response(200, appendSpot(new StringBuilder(), parkingSpot).toString());
+            case "POST":
+                if(!cp.addSpot(identifier)) return message(409, "Spot already exists");
+                return message(201, "Spot added");
+            case "DELETE":
+                int code = cp.deleteSpot(identifier);
+                if(code == 0) return result(404, code, "Spot does not exist");
+                if(code == 1) return result(409, code, "Spot is occupied");
+                return result(200, code, "Spot removed");
+            default:
+                return error(405, "Method not allowed");
+        }
+    }
+
+    /**
+    Serves /cars.
+    **/
+    private Response cars(String method, HashMap<String, String> query){
+        String registration = query.get("registration");
+        switch(method){
+            case "GET":
+                if(registration != null){
+                    ParkingSpot parkingSpot = cp.findCar(registration);
+                    if(parkingSpot == null) return error(404, "Car not found");
+                    return new Response(200, appendSpot(new StringBuilder(), parkingSpot).toString());
+                }else if(query.containsKey("make")){
+                    return spotList(cp.findCarByMake(query.get("make")));
+                }else if(query.containsKey("model")){
+                    return spotList(cp.findCarByModel(query.get("model")));
+                }
+                return error(400, "Expected registration, make or model");
+            case "POST":
+                String identifier = query.get("spot");
+                String make = query.get("make");
+                String model = query.get("model");
+                String year = query.get("year");
+                if(!rules.validateIdentifier(identifier)) return error(400, "Invalid spot identifier");
+                if(registration == null || !rules.validateRegistration(registration)){
+                    return error(400, "Invalid registration: it should be an uppercase letter followed by 4 digits");
+                }
+                if(!validateName(make) || !validateName(model)){
+                    return error(400, "Invalid make or model: it should be 1 to " + MAX_NAME_LENGTH + " letters, digits, spaces, hyphens or dots");
+                }
+                if(!rules.validateYear(year)) return error(400, "Invalid year: it should be between 2004 and 2024");
+                int code = cp.parkCar(identifier, registration, make, model, Integer.parseInt(year));
+                if(code == 0) return result(404, code, "Spot does not exist");
+                if(code == 1) return result(409, code, "Spot is occupied");
+                if(code == 2) return result(409, code, "Car is already parked in another spot");
+                return result(201, code, "Car parked");
+            case "DELETE":
+                if(registration == null) return error(400, "Expected registration");
+                if(!cp.removeCarByRegistration(registration)) return message(404, "Car not found");
+                return message(200, "Car removed");
+            default:
+                return error(405, "Method not allowed");
+        }
+    }
+
+    /**
+    Checks a make or model: 1 to MAX_NAME_LENGTH letters, digits, spaces, hyphens or dots (e.g. Mercedes-Benz).
+    @param name the make or model to check, may be null
+    @return true if the name is acceptable, false otherwise.
+    **/
+    private static boolean validateName(String name){
+        if(name == null || name.isEmpty() || name.length() > MAX_NAME_LENGTH) return false;
+        for(int i = 0; i < name.length(); i++){
+            char c = name.charAt(i);
+            if(!Character.isLetterOrDigit(c) && c != ' ' && c != '-' && c != '.') return false;
+        }
+        return true;
+    }
+
+    /**
+    Serves /vacancies.
+    **/
+    private Response vacancies(String method, HashMap<String, String> query){
+        if(!method.equals("GET")) return error(405, "Method not allowed");
+        return new Response(200, "{\"vacant\":" + cp.getVacantCount() + "}");
+    }
+
+    /**
+    Builds a response listing spots.
+    **/
+    private static Response spotList(ArrayList<ParkingSpot> parkingSpots){
+        StringBuilder json = new StringBuilder(parkingSpots.size() * 64 + 16).append("{\"spots\":[");
+        for(int i = 0; i < parkingSpots.size(); i++){
+            if(i > 0) json.append(',');
+            appendSpot(json, parkingSpots.get(i));
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    /**
+    Appends a spot as a JSON object. The spot is locked while it is read, so its car is read consistently.
+    **/
+    private static StringBuilder appendSpot(StringBuilder json, ParkingSpot parkingSpot){
+        synchronized(parkingSpot){
+            json.append("{\"identifier\":");
+            appendString(json, parkingSpot.getIdentifier());
+            Car car = parkingSpot.getCar();
+            json.append(",\"vacant\":").append(car == null);
+            if(car != null){
+                json.append(",\"car\":{\"registration\":");
+                appendString(json, car.getRegistration());
+                json.append(",\"make\":");
+                appendString(json, car.getMake());
+                json.append(",\"model\":");
+                appendString(json, car.getModel());
+                json.append(",\"year\":").append(car.getYearValue());
+                json.append(",\"parkedAt\":").append(parkingSpot.getParkedAt()).append('}');
+            }
+            return json.append('}');
+        }
+    }
+
+    /**
+    Appends a string as a quoted JSON string.
+    **/
+    private static void appendString(StringBuilder json, String value){
+        json.append('"');
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\') json.append('\\').append(c);
+            else if(c < 0x20) json.append(String.format("\\u%04x", (int)c));
+            else json.append(c);
+        }
+        json.append('"');
+    }
+
+    /**
+    Builds a response with a result code.
+    **/
+    private static Response result(int status, int code, String message){
+        StringBuilder json = new StringBuilder("{\"code\":").append(code).append(",\"message\":");
+        appendString(json, message);
+        return new Response(status, json.append('}').toString());
+    }
+
+    /**
+    Builds a response with a message only, for operations that succeed or fail without a result code.
+    **/
+    private static Response message(int status, String message){
+        StringBuilder json = new StringBuilder("{\"message\":");
+        appendString(json, message);
+        return new Response(status, json.append('}').toString());
+    }
+
+    /**
+    Builds an error response.
+    **/
+    private static Response error(int status, String message){
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        return new Response(status, json.append('}').toString());
+    }
+
+    /**
+    Decodes a query string into a map. A name without a value maps to an empty string.
+    **/
+    private static HashMap<String, String> parseQuery(String rawQuery){
+        HashMap<String, String> query = new HashMap<String, String>();
+        if(rawQuery == null) return query;
+        for(String pair : rawQuery.split("&")){
+            if(pair.isEmpty()) continue;
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    /**
+    Runs the server without a display.
+    @param args optionally the port to listen on, 8080 by default
+    **/
+    public static void main(String[] args) throws IOException{
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        ParkingServer parkingServer = new ParkingServer(new ConcurrentCarPark());
+        port = parkingServer.start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(parkingServer::stop));
+        System.out.println("Parking server listening on port " + port);
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * This class writes and loads compact binary snapshots of a car park.
+ * A snapshot holds every parking spot with its identifier and status, and for occupied spots the
+ * parked car's registration, make, model and year and the parking time. It also records the sequence
+ * number of the last ParkingLog record it includes, so that on startup only the log records written
+ * after the snapshot have to be replayed. The spots' advance reservations are saved with them, so a
+ * checkpoint, which truncates the log, never loses a booking.
+ *
+ * Snapshots are loaded through a memory-mapped file, so a lot with a million spots is read without
+ * any per-record I/O calls, and the spots are handed to CarPark.restore, which builds each lookup index
+ * once instead of going through addSpot and parkCar per spot. SnapshotBenchmark in the benchmarks module
+ * measures the load.
+ *
+ * The file ends with a CRC32 of everything before it, checked before anything is loaded, so a snapshot
+ * that was cut short or damaged on disk is rejected instead of loading part of the car park.
+ *
+ * File layout: [magic int][sequence long][spot count int] then per spot
+ * [occupied byte][identifier] and, if occupied, [registration][make][model][year][parked at long],
+ * then [reservation count int] and per reservation [identifier][registration][start long][end long],
+ * then [CRC32 int] of all the bytes before it, where every string is [unsigned short length][UTF-8 bytes].
+ * Snapshots written before the checksum (magic "PSM2") or before reservations were saved (magic "PSM1")
+ * still load, without the check.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class ParkingSnapshot
+{
+    private static final int MAGIC = 0x50534D33; // "PSM3"
+    private static final int MAGIC_WITHOUT_CHECKSUM = 0x50534D32; // "PSM2"
+    private static final int MAGIC_WITHOUT_RESERVATIONS = 0x50534D31; // "PSM1"
+
+    /**
+    Writes a snapshot of a car park. The snapshot is written to a temporary file first and then
+    moved over the old one, so a crash while writing never leaves a half-written snapshot behind.
+    @param carPark the car park to save
+    @param path the snapshot file
+    @param sequence the sequence number of the last log record the car park state includes
+    @throws IOException if the snapshot cannot be written
+    **/
+    public static void write(CarPark carPark, Path path, long sequence) throws IOException{
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        ArrayList<ParkingSpot> parkingSpots = carPark.viewAllSpots();
+        try(FileOutputStream file = new FileOutputStream(temp.toFile());
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 256 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked)){
+            out.writeInt(MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(parkingSpots.size());
+            for(ParkingSpot parkingSpot : parkingSpots){
+                out.writeByte(parkingSpot.getStatus() ? 0 : 1);
+                writeString(out, parkingSpot.getIdentifier());
+                if(!parkingSpot.getStatus()){
+                    Car car = parkingSpot.getCar();
+                    writeString(out, car.getRegistration());
+                    writeString(out, car.getMake());
+                    writeString(out, car.getModel());
+                    writeString(out, car.getYear());
+                    out.writeLong(parkingSpot.getParkedAt());
+                }
+            }
+            List<Reservation> reservations = carPark.getReservations().getAll();
+            out.writeInt(reservations.size());
+            for(Reservation reservation : reservations){
+                writeString(out, reservation.getIdentifier());
+                writeString(out, reservation.getRegistration());
+                out.writeLong(reservation.getStart());
+                out.writeLong(reservation.getEnd());
+            }
+            out.writeInt((int)checked.getChecksum().getValue());
+            out.flush();
+            file.getChannel().force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+    Loads a snapshot into an empty car park. The car park should not have a log attached while loading.
+    The load publishes no events and records no metrics, so a spot panel should be refreshed afterwards.
+    @param path the snapshot file; a missing file loads nothing
+    @param carPark the car park to fill
+    @return the sequence number stored in the snapshot, 0 if there was no snapshot
+    @throws IOException if the file cannot be read, is not a snapshot or fails its checksum
+    **/
+    public static long load(Path path, CarPark carPark) throws IOException{
+        if(!Files.exists(path)) return 0;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            if(channel.size() > Integer.MAX_VALUE) throw new IOException("Snapshot too large to map: " + path);
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int magic = in.remaining() < 4 ? 0 : in.getInt();
+            if(magic != MAGIC && magic != MAGIC_WITHOUT_CHECKSUM && magic != MAGIC_WITHOUT_RESERVATIONS){
+                throw new IOException("Not a parking snapshot: " + path);
+            }
+            if(magic == MAGIC) checkCrc(in, path);
+            try{
+                long sequence = in.getLong();
+                int count = in.getInt();
+                byte[] scratch = new byte[256]; // reused for string bytes
+                ArrayList<ParkingSpot> parkingSpots = new ArrayList<ParkingSpot>(count);
+                for(int i = 0; i < count; i++){
+                    boolean occupied = in.get() != 0;
+                    ParkingSpot parkingSpot = new ParkingSpot(readString(in, scratch));
+                    if(occupied){
+                        Car car = new Car(readString(in, scratch), readString(in, scratch), readString(in, scratch), readString(in, scratch));
+                        parkingSpot.addCar(car, in.getLong());
+                    }
+                    parkingSpots.add(parkingSpot);
+                }
+                carPark.restore(parkingSpots);
+                if(magic != MAGIC_WITHOUT_RESERVATIONS){
+                    ReservationBook reservations = carPark.getReservations();
+                    int bookings = in.getInt();
+                    for(int i = 0; i < bookings; i++){ // straight into the book, like a replayed RESERVE record
+                        reservations.reserve(readString(in, scratch), readString(in, scratch), in.getLong(), in.getLong());
+                    }
+                }
+                return sequence;
+            }catch(BufferUnderflowException | IllegalArgumentException e){ // damage in a snapshot without a checksum
+                throw new IOException("Corrupt parking snapshot: " + path, e);
+            }
+        }
+    }
+
+    /**
+    Checks the CRC32 at the end of a snapshot against the bytes before it. Leaves the buffer's position unchanged.
+    **/
+    private static void checkCrc(MappedByteBuffer in, Path path) throws IOException{
+        int end = in.limit() - 4;
+        if(end < in.position()) throw new IOException("Parking snapshot cut short: " + path);
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate().position(0).limit(end));
+        if((int)crc.getValue() != in.getInt(end)) throw new IOException("Parking snapshot failed its checksum: " + path);
+    }
+
+    /**
+    Writes a string as [unsigned short length][UTF-8 bytes].
+    **/
+    private static void writeString(DataOutputStream out, String value) throws IOException{
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > 0xFFFF) throw new IOException("String too long for snapshot: " + value.length() + " chars");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+    Reads a string written by writeString, growing the scratch buffer if needed.
+    **/
+    private static String readString(MappedByteBuffer in, byte[] scratch){
+        int length = in.getShort() & 0xFFFF;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        in.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -6,15 +6,17 @@
  * @version (13/05/2024)
  */
 import java.time.format.DateTimeFormatter;  
-import java.time.LocalDateTime;    
+import java.time.Instant;
+import java.time.ZoneId;
 public class ParkingSpot
 {
+    // shared by every spot, since formatters are immutable and safe to use from any thread
+    private static final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("MMM dd, yyyy || hh:mm a").withZone(ZoneId.systemDefault());
+    
     private String identifier; // stored spot identifier
     private boolean isEmpty; // stores if the spot is empty or not
     private Car car; // stores car object in the spot
-    private boolean highlight; // used for search highlight functionalities
-    private String parkedTime; // used to store to keep track of parking time
-    private DateTimeFormatter dtf; // used to format the stored parking time
+    private long parkedAt; // parking time in epoch milliseconds
     
     /**
     Constructor that initializes the parking spot identifier and sets the initial status to empty.
@@ -24,36 +26,52 @@ public class ParkingSpot
     {
         this.identifier = identifier;
         this.isEmpty = true;
-        this.highlight = false;
-        dtf = DateTimeFormatter.ofPattern("MMM dd, yyyy || hh:mm a"); 
     }
     
     /**
-    Set & get methods for the variable named "highlight".
+    Returns the parking time formatted for display.
+    The time is only formatted here, when it is shown, not every time a car is parked.
+    **/    
+    public String getDateTime(){
+        return formatTime(this.parkedAt);
+    }
+    
+    /**
+    Formats a parking time for display, e.g. one copied out of a spot earlier.
+    @param parkedAt the parking time in epoch milliseconds
+    @return the formatted time
     **/
-    public void setHighlightSpot(boolean status){
-        this.highlight = status;
+    public static String formatTime(long parkedAt){
+        return dtf.format(Instant.ofEpochMilli(parkedAt));
     }
-    public boolean getHighlightSpot(){
-        return this.highlight;
+    
+    /**
+    Returns the parking time in epoch milliseconds.
+    **/
+    public long getParkedAt(){
+        return this.parkedAt;
     }
     
     /**
-    Returns the value of parkedTime variable.
-    **/    
-    public String getDateTime(){
-        return this.parkedTime;
+    Returns how long the current car has been parked.
+    @param now the current time in epoch milliseconds
+    @return the time parked in milliseconds
+    **/
+    public long getParkedFor(long now){
+        return now - this.parkedAt;
     }
     
     /**
-    Parks a car in this parking spot and updates parkedTime to current time.
-    Sets the occupied status to true and stores the car object.
+    Parks a car in this parking spot.
+    Sets the occupied status to true and stores the car object and its parking time, which the caller
+    reads from its own clock (see CarPark.setClock) or from a log when restoring.
     @param car the car to be parked
+    @param parkedAt the parking time in epoch milliseconds
     **/
-    public void addCar(Car car){
+    public void addCar(Car car, long parkedAt){
         this.isEmpty = false;
         this.car = car;
-        this.parkedTime = dtf.format(LocalDateTime.now());
+        this.parkedAt = parkedAt;
     }
     
     /**
@@ -0,0 +1,188 @@
+/**
+ * This class indexes the parked cars' registrations character by character in a trie, for searches that an exact
+ * lookup cannot answer: every registration starting with a prefix, and every registration within one misread
+ * character of a plate read by a camera (one character replaced, missing or extra).
+ *
+ * A prefix search walks down the prefix and then visits only the matches. A search within one edit follows the
+ * plate exactly, branching off at each character into the single edit allowed, and every branch continues exactly,
+ * so it visits a few nodes per character of the plate rather than every registration.
+ *
+ * Each node keeps its children in a small array sorted by character and found by binary search; with standard
+ * registrations (a letter then 4 digits) that is at most 26 children at the root and 10 per node below it.
+ *
+ * Not thread-safe: it is kept by CarPark on the thread that runs the CarPark.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+public class RegistrationTrie
+{
+    private Node root; // node of the empty string
+    private int size; // number of registrations held
+
+    /**
+    Constructor that initializes an empty trie.
+    **/
+    public RegistrationTrie()
+    {
+        this.root = new Node();
+    }
+
+    /**
+    Records the spot a car is parked in.
+    @param registration the car's registration
+    @param parkingSpot the spot holding the car
+    **/
+    public void put(String registration, ParkingSpot parkingSpot){
+        Node node = root;
+        for(int i = 0; i < registration.length(); i++){
+            node = node.childOrAdd(registration.charAt(i));
+        }
+        if(node.spot == null) size++;
+        node.spot = parkingSpot;
+    }
+
+    /**
+    Forgets a car, removing the nodes only it used.
+    @param registration the car's registration
+    **/
+    public void remove(String registration){
+        Node[] path = new Node[registration.length() + 1];
+        path[0] = root;
+        for(int i = 0; i < registration.length(); i++){
+            path[i + 1] = path[i].child(registration.charAt(i));
+            if(path[i + 1] == null) return; // not held
+        }
+        Node node = path[registration.length()];
+        if(node.spot == null) return;
+        node.spot = null;
+        size--;
+        for(int i = registration.length(); i > 0 && path[i].spot == null && path[i].count == 0; i--){
+            path[i - 1].removeChild(registration.charAt(i - 1)); // prune the branch only this car used
+        }
+    }
+
+    /**
+    Forgets every car.
+    **/
+    public void clear(){
+        root = new Node();
+        size = 0;
+    }
+
+    /**
+    Gets the number of registrations held.
+    **/
+    public int size(){
+        return this.size;
+    }
+
+    /**
+    Adds the spots of every car whose registration starts with a prefix to a search result.
+    @param prefix the start of the registration, e.g. T12
+    @param result the search result to add the matches to
+    @return the number of matches added
+    **/
+    public int findPrefix(String prefix, SearchResult result){
+        Node node = root;
+        for(int i = 0; i < prefix.length() && node != null; i++){
+            node = node.child(prefix.charAt(i));
+        }
+        if(node == null) return 0;
+        int found = 0;
+        ArrayDeque<Node> pending = new ArrayDeque<Node>();
+        pending.push(node);
+        while(!pending.isEmpty()){
+            Node next = pending.pop();
+            if(next.spot != null){
+                result.add(next.spot);
+                found++;
+            }
+            for(int i = 0; i < next.count; i++) pending.push(next.children[i]);
+        }
+        return found;
+    }
+
+    /**
+    Adds the spots of every car whose registration is the given one or differs from it by one character
+    replaced, missing or extra (edit distance 1) to a search result.
+    @param registration the registration as read, e.g. T1Z34 for T1234
+    @param result the search result to add the matches to
+    @return the number of matches added
+    **/
+    public int findWithinOneEdit(String registration, SearchResult result){
+        SearchResult matches = new SearchResult(); // a registration can be reached by more than one edit
+        fuzzy(root, registration, 0, true, matches);
+        result.addAll(matches.getSpots());
+        return matches.size();
+    }
+
+    /**
+    Matches the rest of a registration from a node, with or without an edit left to spend.
+    **/
+    private void fuzzy(Node node, String registration, int position, boolean edit, SearchResult matches){
+        if(position == registration.length()){
+            if(node.spot != null) matches.add(node.spot);
+            if(edit){ // one extra character at the end of the held registration
+                for(int i = 0; i < node.count; i++){
+                    if(node.children[i].spot != null) matches.add(node.children[i].spot);
+                }
+            }
+            return;
+        }
+        char c = registration.charAt(position);
+        Node exact = node.child(c);
+        if(exact != null) fuzzy(exact, registration, position + 1, edit, matches);
+        if(!edit) return;
+        fuzzy(node, registration, position + 1, false, matches); // character read that is not in the held registration
+        for(int i = 0; i < node.count; i++){
+            Node child = node.children[i];
+            if(node.keys[i] != c) fuzzy(child, registration, position + 1, false, matches); // character misread
+            fuzzy(child, registration, position, false, matches); // character of the held registration missed
+        }
+    }
+
+    /**
+    A trie node: the children by next character, and the spot of the car whose registration ends here, if any.
+    **/
+    private static class Node
+    {
+        private char[] keys = new char[0]; // sorted next characters, first count are used
+        private Node[] children = new Node[0]; // child for each key
+        private int count; // number of children
+        private ParkingSpot spot; // spot holding the car with this registration, or null
+
+        Node child(char c){
+            int i = Arrays.binarySearch(keys, 0, count, c);
+            return i < 0 ? null : children[i];
+        }
+
+        Node childOrAdd(char c){
+            int i = Arrays.binarySearch(keys, 0, count, c);
+            if(i >= 0) return children[i];
+            i = -i - 1;
+            if(count == keys.length){
+                keys = Arrays.copyOf(keys, Math.max(2, count * 2));
+                children = Arrays.copyOf(children, keys.length);
+            }
+            System.arraycopy(keys, i, keys, i + 1, count - i);
+            System.arraycopy(children, i, children, i + 1, count - i);
+            keys[i] = c;
+            children[i] = new Node();
+            count++;
+            return children[i];
+        }
+
+        void removeChild(char c){
+            int i = Arrays.binarySearch(keys, 0, count, c);
+            if(i < 0) return;
+            System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+            System.arraycopy(children, i + 1, children, i, count - i - 1);
+            count--;
+            children[count] = null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * This class represents a booking of one parking spot for one car over a time window.
+ * The window starts at its start time and ends just before its end time, so back-to-back
+ * bookings of a spot (one ending at 10:00, the next starting at 10:00) do not conflict.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+public class Reservation
+{
+    final private long id; // order the reservation was made in, unique per ReservationBook
+    final private String identifier; // spot booked
+    final private String registration; // car the spot is held for
+    final private long start; // start of the window in epoch milliseconds
+    final private long end; // end of the window in epoch milliseconds, exclusive
+
+    /**
+    Constructor for Reservation. Reservations are made through ReservationBook.reserve.
+    **/
+    Reservation(long id, String identifier, String registration, long start, long end)
+    {
+        this.id = id;
+        this.identifier = identifier;
+        this.registration = registration;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+    Get methods for the reservation's fields.
+    **/
+    public long getId(){
+        return this.id;
+    }
+    public String getIdentifier(){
+        return this.identifier;
+    }
+    public String getRegistration(){
+        return this.registration;
+    }
+    public long getStart(){
+        return this.start;
+    }
+    public long getEnd(){
+        return this.end;
+    }
+
+    /**
+    Checks if the window overlaps another window.
+    @param start the start of the other window in epoch milliseconds
+    @param end the end of the other window in epoch milliseconds, exclusive
+    **/
+    public boolean overlaps(long start, long end){
+        return this.start < end && start < this.end;
+    }
+
+    /**
+    Checks if the reservation holds its spot at a time.
+    @param time the time in epoch milliseconds
+    **/
+    public boolean isActiveAt(long time){
+        return start <= time && time < end;
+    }
+}
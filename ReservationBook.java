@@ -0,0 +1,216 @@
+/**
+ * This class holds the advance bookings of a car park's spots.
+ *
+ * Every spot has its own TreeMap of reservations keyed by start time. A spot's reservations never overlap,
+ * so the only ones that can clash with a new window are the last one starting before the window ends and
+ * the one before it; checking a booking, finding the reservation active at a time, booking and cancelling
+ * each take O(log k) time for a spot with k reservations.
+ *
+ * All reservations are also kept in one calendar ordered by start time, for questions about the whole car
+ * park: a reservation overlapping a window must start within the longest booking length before the window,
+ * so the spots reserved in a window are found in O(log n + m) time, m being the reservations looked at.
+ * The lengths of the bookings held are counted in a TreeMap, so the longest one is always that of a booking
+ * still in the book: cancelling or expiring a long booking shortens the search again.
+ *
+ * Not thread-safe: it is kept by CarPark on the thread that runs the CarPark, and by ConcurrentCarPark
+ * one book per spot, under the spot's lock.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class ReservationBook
+{
+    private HashMap<String, TreeMap<Long, Reservation>> spots; // spot identifier -> its reservations by start time
+    private TreeSet<Reservation> calendar; // every reservation, by start time then id
+    private TreeMap<Long, Integer> lengths; // window length -> number of bookings that long; the longest bounds calendar searches
+    private long nextId; // id of the next reservation
+
+    /**
+    Constructor that initializes an empty book.
+    **/
+    public ReservationBook()
+    {
+        this.spots = new HashMap<String, TreeMap<Long, Reservation>>();
+        this.calendar = new TreeSet<Reservation>(Comparator.comparingLong(Reservation::getStart).thenComparingLong(Reservation::getId));
+        this.lengths = new TreeMap<Long, Integer>();
+    }
+
+    /**
+    Books a spot for a car over a window, unless it clashes with another booking of the spot.
+    @param identifier the spot to book
+    @param registration the car to hold the spot for
+    @param start the start of the window in epoch milliseconds
+    @param end the end of the window in epoch milliseconds, exclusive
+    @return the reservation, or null if the spot is already booked during the window
+    @throws IllegalArgumentException if the window does not end after it starts
+    **/
+    public Reservation reserve(String identifier, String registration, long start, long end){
+        if(end <= start) throw new IllegalArgumentException("Reservation must end after it starts: " + start + " to " + end);
+        if(!isFree(identifier, start, end)) return null;
+        Reservation reservation = new Reservation(nextId++, identifier, registration, start, end);
+        spots.computeIfAbsent(identifier, (k) -> new TreeMap<Long, Reservation>()).put(start, reservation);
+        calendar.add(reservation);
+        lengths.merge(end - start, 1, Integer::sum);
+        return reservation;
+    }
+
+    /**
+    Checks if a spot has no booking during a window.
+    @param identifier the spot
+    @param start the start of the window in epoch milliseconds
+    @param end the end of the window in epoch milliseconds, exclusive
+    **/
+    public boolean isFree(String identifier, long start, long end){
+        TreeMap<Long, Reservation> bookings = spots.get(identifier);
+        if(bookings == null) return true;
+        Map.Entry<Long, Reservation> last = bookings.lowerEntry(end); // the last booking starting before the window ends
+        return last == null || last.getValue().getEnd() <= start; // bookings don't overlap, so earlier ones end even sooner
+    }
+
+    /**
+    Gets the reservation holding a spot at a time.
+    @param identifier the spot
+    @param time the time in epoch milliseconds
+    @return the reservation, or null if the spot is not booked at that time
+    **/
+    public Reservation getActive(String identifier, long time){
+        TreeMap<Long, Reservation> bookings = spots.get(identifier);
+        if(bookings == null) return null;
+        Map.Entry<Long, Reservation> last = bookings.floorEntry(time);
+        return last != null && last.getValue().isActiveAt(time) ? last.getValue() : null;
+    }
+
+    /**
+    Cancels a reservation.
+    @param identifier the spot booked
+    @param start the start of the reservation's window in epoch milliseconds
+    @return the cancelled reservation, or null if the spot has no reservation starting at that time
+    **/
+    public Reservation cancel(String identifier, long start){
+        TreeMap<Long, Reservation> bookings = spots.get(identifier);
+        if(bookings == null) return null;
+        Reservation reservation = bookings.remove(start);
+        if(reservation == null) return null;
+        if(bookings.isEmpty()) spots.remove(identifier);
+        calendar.remove(reservation);
+        forgetLength(reservation);
+        return reservation;
+    }
+
+    /**
+    Cancels every reservation of a spot, e.g. because the spot was deleted.
+    @param identifier the spot
+    **/
+    public void removeSpot(String identifier){
+        TreeMap<Long, Reservation> bookings = spots.remove(identifier);
+        if(bookings == null) return;
+        for(Reservation reservation : bookings.values()){
+            calendar.remove(reservation);
+            forgetLength(reservation);
+        }
+    }
+
+    /**
+    Forgets the reservations that ended by a time, so the book only holds current and future ones.
+    @param time the time in epoch milliseconds
+    @return the number of reservations forgotten
+    **/
+    public int expire(long time){
+        int expired = 0;
+        Iterator<Reservation> reservations = calendar.iterator();
+        while(reservations.hasNext()){
+            Reservation reservation = reservations.next();
+            if(reservation.getStart() >= time) break; // later ones have not started yet
+            if(reservation.getEnd() > time) continue;
+            reservations.remove();
+            TreeMap<Long, Reservation> bookings = spots.get(reservation.getIdentifier());
+            bookings.remove(reservation.getStart());
+            if(bookings.isEmpty()) spots.remove(reservation.getIdentifier());
+            forgetLength(reservation);
+            expired++;
+        }
+        return expired;
+    }
+
+    /**
+    Gets the reservation of a spot that starts at a given time.
+    @param identifier the spot
+    @param start the start of the reservation's window in epoch milliseconds
+    @return the reservation, or null if the spot has no reservation starting at that time
+    **/
+    public Reservation get(String identifier, long start){
+        TreeMap<Long, Reservation> bookings = spots.get(identifier);
+        return bookings == null ? null : bookings.get(start);
+    }
+
+    /**
+    Gets every reservation held, earliest start first, e.g. to save them in a ParkingSnapshot.
+    **/
+    public List<Reservation> getAll(){
+        return new ArrayList<Reservation>(calendar);
+    }
+
+    /**
+    Gets the reservations of a spot, earliest first.
+    @param identifier the spot
+    **/
+    public List<Reservation> getReservations(String identifier){
+        TreeMap<Long, Reservation> bookings = spots.get(identifier);
+        return bookings == null ? new ArrayList<Reservation>() : new ArrayList<Reservation>(bookings.values());
+    }
+
+    /**
+    Gets the spots booked at any time during a window.
+    @param start the start of the window in epoch milliseconds
+    @param end the end of the window in epoch milliseconds, exclusive
+    @return the identifiers of the spots booked during the window
+    **/
+    public HashSet<String> getReservedIdentifiers(long start, long end){
+        HashSet<String> reserved = new HashSet<String>();
+        if(end <= start || calendar.isEmpty()) return reserved;
+        long longest = lengths.lastKey();
+        long from = start - longest < start ? start - longest : Long.MIN_VALUE; // a booking ending after start began after this
+        for(Reservation reservation : calendar.subSet(probe(from), true, probe(end), false)){
+            if(reservation.getEnd() > start) reserved.add(reservation.getIdentifier());
+        }
+        return reserved;
+    }
+
+    /**
+    Checks if there are no reservations at all.
+    **/
+    public boolean isEmpty(){
+        return calendar.isEmpty();
+    }
+
+    /**
+    Gets the number of reservations held.
+    **/
+    public int size(){
+        return calendar.size();
+    }
+
+    /**
+    Drops a booking that left the book from the length counts.
+    **/
+    private void forgetLength(Reservation reservation){
+        lengths.computeIfPresent(reservation.getEnd() - reservation.getStart(), (length, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+    Makes a calendar key that sorts before every reservation starting at a time.
+    **/
+    private static Reservation probe(long start){
+        return new Reservation(Long.MIN_VALUE, null, null, start, start);
+    }
+}
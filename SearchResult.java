@@ -0,0 +1,66 @@
+/**
+ * This class holds the parking spots matched by one or more searches, i.e. the spots to highlight.
+ * Keeping matches here instead of in a flag on every ParkingSpot means clearing a search never has
+ * to visit every spot, and several users or views can each keep their own results side by side
+ * without changing shared spot state.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class SearchResult
+{
+    private HashSet<ParkingSpot> spots; // matched spots
+
+    /**
+    Constructor that initializes an empty result.
+    **/
+    public SearchResult()
+    {
+        this.spots = new HashSet<ParkingSpot>();
+    }
+
+    /**
+    Adds a matched spot.
+    @param parkingSpot the spot to highlight
+    **/
+    public void add(ParkingSpot parkingSpot){
+        spots.add(parkingSpot);
+    }
+
+    /**
+    Adds several matched spots.
+    @param parkingSpots the spots to highlight
+    **/
+    public void addAll(Collection<ParkingSpot> parkingSpots){
+        spots.addAll(parkingSpots);
+    }
+
+    /**
+    Checks if a spot is highlighted.
+    @param parkingSpot the spot to check
+    @return true if the spot was matched, false otherwise
+    **/
+    public boolean contains(ParkingSpot parkingSpot){
+        return spots.contains(parkingSpot);
+    }
+
+    /**
+    Gets the number of matched spots.
+    **/
+    public int size(){
+        return spots.size();
+    }
+
+    /**
+    Gets the matched spots.
+    @return a read-only view of the matched spots
+    **/
+    public Set<ParkingSpot> getSpots(){
+        return Collections.unmodifiableSet(spots);
+    }
+}
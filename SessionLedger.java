@@ -0,0 +1,128 @@
+/**
+ * This class records finished parking sessions: the spot, the car, the arrival and exit times and the charge.
+ * Sessions are kept in parallel primitive arrays rather than one object each, so a day of a million
+ * sessions costs a few tens of megabytes and can be priced in bulk (see Settlement) without chasing pointers.
+ *
+ * Not thread-safe: CarPark appends to it on its own thread. Use snapshot() there to hand a copy to another thread.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.Arrays;
+
+public class SessionLedger
+{
+    private int size; // number of sessions recorded
+    private String[] identifiers; // spot of each session
+    private String[] registrations; // car of each session
+    private long[] parkedAts; // arrival time of each session, in epoch milliseconds
+    private long[] removedAts; // exit time of each session, in epoch milliseconds
+    private long[] charges; // charge of each session in cents, as priced on exit
+
+    /**
+    Constructor that initializes an empty ledger.
+    **/
+    public SessionLedger()
+    {
+        this(1024);
+    }
+
+    /**
+    Constructor that initializes an empty ledger with room for a number of sessions.
+    @param capacity the number of sessions to make room for; the ledger grows past it as needed
+    **/
+    public SessionLedger(int capacity)
+    {
+        capacity = Math.max(1, capacity);
+        this.identifiers = new String[capacity];
+        this.registrations = new String[capacity];
+        this.parkedAts = new long[capacity];
+        this.removedAts = new long[capacity];
+        this.charges = new long[capacity];
+    }
+
+    /**
+    Records a finished session.
+    @param identifier the spot the car was parked in
+    @param registration the car's registration
+    @param parkedAt the arrival time in epoch milliseconds
+    @param removedAt the exit time in epoch milliseconds
+    @param charge the charge in cents
+    **/
+    public void add(String identifier, String registration, long parkedAt, long removedAt, long charge){
+        if(size == parkedAts.length){
+            int capacity = size * 2;
+            identifiers = Arrays.copyOf(identifiers, capacity);
+            registrations = Arrays.copyOf(registrations, capacity);
+            parkedAts = Arrays.copyOf(parkedAts, capacity);
+            removedAts = Arrays.copyOf(removedAts, capacity);
+            charges = Arrays.copyOf(charges, capacity);
+        }
+        identifiers[size] = identifier;
+        registrations[size] = registration;
+        parkedAts[size] = parkedAt;
+        removedAts[size] = removedAt;
+        charges[size] = charge;
+        size++;
+    }
+
+    /**
+    Gets the number of sessions recorded.
+    **/
+    public int size(){
+        return this.size;
+    }
+
+    /**
+    Get methods for one session's fields.
+    @param index the session's position, from 0 to size() - 1
+    **/
+    public String getIdentifier(int index){
+        return identifiers[index];
+    }
+    public String getRegistration(int index){
+        return registrations[index];
+    }
+    public long getParkedAt(int index){
+        return parkedAts[index];
+    }
+    public long getRemovedAt(int index){
+        return removedAts[index];
+    }
+    public long getCharge(int index){
+        return charges[index];
+    }
+
+    /**
+    Copies the ledger, e.g. to settle it on another thread while the car park keeps adding sessions.
+    **/
+    public SessionLedger snapshot(){
+        SessionLedger copy = new SessionLedger(0);
+        copy.size = size;
+        copy.identifiers = Arrays.copyOf(identifiers, size);
+        copy.registrations = Arrays.copyOf(registrations, size);
+        copy.parkedAts = Arrays.copyOf(parkedAts, size);
+        copy.removedAts = Arrays.copyOf(removedAts, size);
+        copy.charges = Arrays.copyOf(charges, size);
+        return copy;
+    }
+
+    /**
+    Forgets every session, e.g. once a day has been settled.
+    **/
+    public void clear(){
+        Arrays.fill(identifiers, 0, size, null);
+        Arrays.fill(registrations, 0, size, null);
+        size = 0;
+    }
+
+    /**
+    Gives Settlement direct access to the time arrays. Only the first size() entries are sessions.
+    **/
+    long[] parkedAts(){
+        return parkedAts;
+    }
+    long[] removedAts(){
+        return removedAts;
+    }
+}
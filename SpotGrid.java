@@ -0,0 +1,299 @@
+/**
+ * This class draws the parking spots of a car park as a scrollable grid of cells.
+ * Unlike a panel of buttons it creates no component per spot: it works out which cells fall inside
+ * the visible part of the grid and paints only those, and finds the clicked spot from the mouse
+ * position. Memory use and paint time therefore depend on the window size, not on the number of spots.
+ *
+ * The grid never reads the car park while painting. refresh() asks the car park's worker thread to copy
+ * the spots around the visible area into an array of Cells, and painting and clicks only use that copy,
+ * so the event dispatch thread never touches the car park while the worker is changing it.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+public class SpotGrid extends JComponent implements Scrollable
+{
+    private static final long serialVersionUID = 1L; // JComponent is Serializable; the grid is never serialized
+
+    private CarPark cp; // car park whose spots are drawn, only read on carParkExecutor
+    private Executor carParkExecutor; // the thread that owns cp
+    private Consumer<Cell> onCellClicked; // called with the cell under a mouse click
+    private int spotCount; // number of spots in cp at the last copy
+    private Cell[] cells = new Cell[0]; // copy of the spots around the visible area
+    private int firstIndex; // spot index of cells[0]
+    private boolean loading; // a copy is being made on carParkExecutor
+    private boolean reloadWanted; // refresh() was called while loading
+    private int requestedFrom, requestedTo; // spot index range asked for by the last copy, end exclusive
+    private boolean copyFailed; // the last copy failed, so painting waits for the next refresh() before asking again
+    private int shownColumns; // number of columns the grid was last sized for
+
+    // cell geometry
+    final private int cellWidth = 200;
+    final private int cellHeight = 80;
+    final private int gap = 10;
+
+    // colours and fonts shared by every cell
+    private Color availableSpotColor, occupiedSpotColor, highlightedSpotColor;
+    final private Color borderColor = new Color(120, 120, 120);
+    private Font plainFont, boldFont, smallFont;
+
+    /**
+    Constructor for SpotGrid.
+    @param cp the car park whose spots are drawn
+    @param carParkExecutor the executor all car park operations run on; the grid reads cp only through it
+    @param font the font used for cell text
+    @param availableSpotColor background of vacant spots
+    @param occupiedSpotColor background of occupied spots
+    @param highlightedSpotColor background of spots highlighted by a search
+    @param onCellClicked called with the cell under a mouse click
+    **/
+    public SpotGrid(CarPark cp, Executor carParkExecutor, Font font, Color availableSpotColor, Color occupiedSpotColor, Color highlightedSpotColor, Consumer<Cell> onCellClicked){
+        this.cp = cp;
+        this.carParkExecutor = carParkExecutor;
+        this.onCellClicked = onCellClicked;
+        this.availableSpotColor = availableSpotColor;
+        this.occupiedSpotColor = occupiedSpotColor;
+        this.highlightedSpotColor = highlightedSpotColor;
+        this.plainFont = font;
+        this.boldFont = font.deriveFont(Font.BOLD);
+        this.smallFont = font.deriveFont(font.getSize2D() - 3);
+        setOpaque(true);
+        setBackground(Color.white);
+        addMouseListener(new MouseAdapter(){
+            public void mouseClicked(MouseEvent e){
+                Cell cell = getCellAt(e.getPoint());
+                if(cell != null) SpotGrid.this.onCellClicked.accept(cell);
+            }
+        });
+        addComponentListener(new ComponentAdapter(){
+            public void componentResized(ComponentEvent e){
+                if(columns() != shownColumns){
+                    shownColumns = columns();
+                    revalidate(); // grid height follows the column count
+                }
+            }
+        });
+    }
+
+    /**
+    Shows the current state of the car park. Must be called on the event dispatch thread.
+    Copies the spots around the visible area on carParkExecutor, then repaints from the copy.
+    Calls made while a copy is being made are merged into one more copy afterwards.
+    **/
+    public void refresh(){
+        copyFailed = false;
+        load();
+    }
+    
+    /**
+    Copies the spots around the visible area on carParkExecutor, or asks for one more copy if one is being made.
+    **/
+    private void load(){
+        if(loading){
+            reloadWanted = true;
+            return;
+        }
+        loading = true;
+        int columns = columns();
+        Rectangle visible = getVisibleRect();
+        int margin = Math.max(visible.height, cellHeight); // copy one screen above and below for scrolling
+        int from = Math.max(0, (visible.y - margin) / (cellHeight + gap)) * columns;
+        int to = ((visible.y + visible.height + margin) / (cellHeight + gap) + 1) * columns;
+        requestedFrom = from;
+        requestedTo = to;
+        carParkExecutor.execute(() -> {
+            int count = 0;
+            int start = 0;
+            Cell[] copy = null;
+            try{
+                ArrayList<ParkingSpot> parkingSpots = cp.viewAllSpots();
+                SearchResult highlights = cp.getSearchResult();
+                count = parkingSpots.size();
+                int end = Math.min(to, count);
+                start = Math.min(from, end);
+                copy = new Cell[end - start];
+                for(int i = 0; i < copy.length; i++){
+                    ParkingSpot parkingSpot = parkingSpots.get(start + i);
+                    copy[i] = new Cell(parkingSpot, highlights.contains(parkingSpot));
+                }
+            }finally{
+                final int shownCount = count, shownStart = start;
+                final Cell[] shown = copy;
+                SwingUtilities.invokeLater(() -> showCopy(shownCount, shownStart, shown));
+            }
+        });
+    }
+    
+    /**
+    Takes a copy made by refresh() and repaints. Runs on the event dispatch thread.
+    @param count the number of spots in the car park
+    @param start the spot index of copy[0]
+    @param copy the copied cells, or null if the copy failed
+    **/
+    private void showCopy(int count, int start, Cell[] copy){
+        loading = false;
+        if(copy != null){
+            if(count != spotCount){
+                spotCount = count;
+                revalidate(); // grid height follows the spot count
+            }
+            cells = copy;
+            firstIndex = start;
+            repaint();
+        }else{
+            copyFailed = true;
+        }
+        if(reloadWanted){
+            reloadWanted = false;
+            load();
+        }
+    }
+    
+    /**
+    Finds the cell drawn at a point of the grid.
+    @param point a point in grid coordinates
+    @return the cell under the point, or null if the point is in a gap, past the last spot or not copied yet
+    **/
+    public Cell getCellAt(Point point){
+        int columns = columns();
+        int column = point.x / (cellWidth + gap);
+        int row = point.y / (cellHeight + gap);
+        if(column >= columns || point.x % (cellWidth + gap) >= cellWidth || point.y % (cellHeight + gap) >= cellHeight){
+            return null; // in a gap
+        }
+        return cellAt(row * columns + column);
+    }
+    
+    /**
+    Gets the copied cell for a spot index, or null if it is not in the copy.
+    **/
+    private Cell cellAt(int index){
+        int offset = index - firstIndex;
+        return offset >= 0 && offset < cells.length ? cells[offset] : null;
+    }
+    
+    /**
+    Paints the cells that intersect the clip area.
+    If the area was scrolled past the copied cells, placeholders are painted and a new copy is requested,
+    unless the cells are already being copied or the last copy failed.
+    **/
+    protected void paintComponent(Graphics g){
+        Rectangle clip = g.getClipBounds();
+        if(clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        
+        int columns = columns();
+        int firstRow = clip.y / (cellHeight + gap);
+        int lastRow = (clip.y + clip.height) / (cellHeight + gap);
+        boolean missing = false; // a painted cell is outside the range last asked for
+        for(int row = firstRow; row <= lastRow; row++){
+            for(int column = 0; column < columns; column++){
+                int index = row * columns + column;
+                if(index >= spotCount) break;
+                Cell cell = cellAt(index);
+                if(cell == null && (index < requestedFrom || index >= requestedTo)) missing = true;
+                paintCell(g, cell, column * (cellWidth + gap), row * (cellHeight + gap));
+            }
+        }
+        if(missing && !copyFailed) load();
+    }
+    
+    /**
+    Paints one spot: background by status and highlight, then the same text the spot buttons used to show.
+    A cell that has not been copied yet is painted as an empty outline.
+    **/
+    private void paintCell(Graphics g, Cell cell, int x, int y){
+        if(cell == null){
+            g.setColor(borderColor);
+            g.drawRect(x, y, cellWidth - 1, cellHeight - 1);
+            return;
+        }
+        boolean vacant = cell.car == null;
+        if(cell.highlight) g.setColor(highlightedSpotColor);
+        else g.setColor(vacant ? availableSpotColor : occupiedSpotColor);
+        g.fillRect(x, y, cellWidth, cellHeight);
+        g.setColor(borderColor);
+        g.drawRect(x, y, cellWidth - 1, cellHeight - 1);
+
+        g.setColor(Color.black);
+        if(vacant){
+            drawCentered(g, boldFont, "Spot ID: " + cell.identifier + " (Vacant)", x, y + cellHeight / 2);
+        }else{
+            drawCentered(g, boldFont, "Spot ID: " + cell.identifier + " (Occupied)", x, y + cellHeight / 4 + 4);
+            drawCentered(g, plainFont, "Registration: " + cell.car.getRegistration(), x, y + cellHeight / 2 + 4);
+            drawCentered(g, smallFont, "See Details", x, y + 3 * cellHeight / 4 + 4);
+        }
+    }
+
+    /**
+    Draws a line of text centred horizontally in a cell, with its baseline at the given y.
+    **/
+    private void drawCentered(Graphics g, Font font, String text, int cellX, int baseline){
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(text, cellX + Math.max(2, (cellWidth - metrics.stringWidth(text)) / 2), baseline);
+    }
+
+    /**
+    Gets the number of cells that fit across the current width.
+    **/
+    private int columns(){
+        return Math.max(1, (getWidth() + gap) / (cellWidth + gap));
+    }
+
+    /**
+    Gets the size needed to show every spot at the current width.
+    **/
+    public Dimension getPreferredSize(){
+        int rows = (spotCount + columns() - 1) / columns();
+        return new Dimension(cellWidth, Math.max(0, rows * (cellHeight + gap) - gap));
+    }
+
+    public Dimension getPreferredScrollableViewportSize(){
+        return new Dimension(500, 600);
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction){
+        return orientation == SwingConstants.VERTICAL ? cellHeight + gap : cellWidth + gap;
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction){
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    public boolean getScrollableTracksViewportWidth(){
+        return true; // columns follow the window width, so only vertical scrolling is needed
+    }
+
+    public boolean getScrollableTracksViewportHeight(){
+        // fill the viewport when there are too few spots to scroll
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+
+    /**
+    A copy of one parking spot as it was when the grid last refreshed.
+    The car is shared with the spot, which is safe since cars are not changed once parked.
+    **/
+    public static class Cell
+    {
+        final public String identifier; // spot identifier
+        final public Car car; // parked car, null if the spot was vacant
+        final public boolean highlight; // search highlight
+        final public long parkedAt; // parking time in epoch milliseconds, 0 if the spot was vacant
+        
+        Cell(ParkingSpot parkingSpot, boolean highlight){
+            this.identifier = parkingSpot.getIdentifier();
+            this.car = parkingSpot.getCar();
+            this.highlight = highlight;
+            this.parkedAt = car == null ? 0 : parkingSpot.getParkedAt();
+        }
+    }
+}
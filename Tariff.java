@@ -0,0 +1,83 @@
+/**
+ * This class prices a parking session from its arrival and exit times.
+ * Every started hour costs the hourly rate, but no 24 hour block of a stay costs more than the daily cap.
+ * On top of that, each time the stay passes the overnight hour (e.g. 2 AM local time) the overnight fee is added.
+ * All amounts are in cents, so prices add up exactly.
+ *
+ * Tariffs are immutable, so one tariff can price sessions on many threads at once.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+public class Tariff
+{
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+
+    final private long hourlyRate; // cents per started hour
+    final private long dailyCap; // most cents charged for any 24 hour block
+    final private long overnightFee; // cents per night
+    final private long overnightTime; // time of day a night is counted, in milliseconds after local midnight
+    final private ZoneRules zone; // local time zone of the car park
+
+    /**
+    Constructor for Tariff.
+    @param hourlyRate cents charged per started hour
+    @param dailyCap the most cents charged for any 24 hour block of a stay
+    @param overnightFee cents added each time a stay passes the overnight hour
+    @param overnightHour the hour of the day, 0 to 23, at which a car still parked is charged the overnight fee
+    @param zone the car park's time zone, used to find the overnight hour
+    **/
+    public Tariff(long hourlyRate, long dailyCap, long overnightFee, int overnightHour, ZoneId zone)
+    {
+        if(hourlyRate < 0 || dailyCap < 0 || overnightFee < 0) throw new IllegalArgumentException("Tariff amounts cannot be negative");
+        if(overnightHour < 0 || overnightHour > 23) throw new IllegalArgumentException("Overnight hour must be 0 to 23: " + overnightHour);
+        this.hourlyRate = hourlyRate;
+        this.dailyCap = dailyCap;
+        this.overnightFee = overnightFee;
+        this.overnightTime = overnightHour * HOUR;
+        this.zone = zone.getRules();
+    }
+
+    /**
+    Prices one session.
+    @param parkedAt the arrival time in epoch milliseconds
+    @param removedAt the exit time in epoch milliseconds
+    @return the charge in cents, 0 for a session with no length
+    **/
+    public long price(long parkedAt, long removedAt){
+        long duration = Math.max(0, removedAt - parkedAt);
+        long days = duration / DAY;
+        long hours = (duration % DAY + HOUR - 1) / HOUR; // started hours of the last, partial day
+        long charge = days * dailyCap + Math.min(hours * hourlyRate, dailyCap);
+        return charge + nights(parkedAt, removedAt) * overnightFee;
+    }
+
+    /**
+    Counts how many times a stay passes the overnight hour in local time.
+    **/
+    private long nights(long parkedAt, long removedAt){
+        if(overnightFee == 0 || removedAt <= parkedAt) return 0;
+        long arrival = local(parkedAt) - overnightTime;
+        long exit = local(removedAt) - overnightTime;
+        return Math.max(0, Math.floorDiv(exit, DAY) - Math.floorDiv(arrival, DAY));
+    }
+
+    /**
+    Converts an epoch time to milliseconds since the local epoch, so whole days start at local midnight.
+    **/
+    private long local(long time){
+        return time + zone.getOffset(Instant.ofEpochMilli(time)).getTotalSeconds() * 1000L;
+    }
+
+    /**
+    Formats an amount in cents as dollars, e.g. 1250 as $12.50.
+    **/
+    public static String format(long cents){
+        return String.format("$%d.%02d", cents / 100, cents % 100);
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * This class keeps track of the vacant parking spots in a car park.
+ * Vacant spots are kept in an array-backed free list, with a map from identifier to position in that list,
+ * so adding, removing, counting and picking a vacant spot all take constant time.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+
+public class VacancyTracker
+{
+    private ArrayList<ParkingSpot> vacantSpots; // free list of vacant spots, in no particular order
+    private HashMap<String, Integer> slots; // spot identifier -> position in vacantSpots
+
+    /**
+    Constructor that initializes an empty tracker.
+    **/
+    public VacancyTracker()
+    {
+        this.vacantSpots = new ArrayList<ParkingSpot>();
+        this.slots = new HashMap<String, Integer>();
+    }
+
+    /**
+    Marks a parking spot as vacant.
+    @param parkingSpot the spot that became vacant
+    **/
+    public void add(ParkingSpot parkingSpot){
+        if(slots.containsKey(parkingSpot.getIdentifier())) return; // already tracked
+        slots.put(parkingSpot.getIdentifier(), vacantSpots.size());
+        vacantSpots.add(parkingSpot);
+    }
+
+    /**
+    Marks many parking spots as vacant, growing the free list (and, when empty, the position map) once for all of them.
+    @param parkingSpots the spots that became vacant
+    **/
+    public void addAll(Collection<ParkingSpot> parkingSpots){
+        if(slots.isEmpty()) slots = new HashMap<String, Integer>(parkingSpots.size() * 4 / 3 + 1); // no rehashing while filling
+        vacantSpots.ensureCapacity(vacantSpots.size() + parkingSpots.size());
+        parkingSpots.forEach(this::add);
+    }
+
+    /**
+    Marks a parking spot as no longer vacant (occupied or deleted).
+    The last vacant spot is moved into the freed position so nothing has to shift.
+    @param parkingSpot the spot that stopped being vacant
+    **/
+    public void remove(ParkingSpot parkingSpot){
+        Integer slot = slots.remove(parkingSpot.getIdentifier());
+        if(slot == null) return; // not tracked
+        ParkingSpot last = vacantSpots.remove(vacantSpots.size() - 1);
+        if(slot < vacantSpots.size()){
+            vacantSpots.set(slot, last);
+            slots.put(last.getIdentifier(), slot);
+        }
+    }
+
+    /**
+    Gets a vacant parking spot without removing it from the tracker.
+    @return a vacant spot, or null if there is none
+    **/
+    public ParkingSpot peek(){
+        return vacantSpots.isEmpty() ? null : vacantSpots.get(vacantSpots.size() - 1);
+    }
+
+    /**
+    Gets the number of vacant parking spots.
+    @return the vacant spot count
+    **/
+    public int count(){
+        return vacantSpots.size();
+    }
+
+    /**
+    Gets the identifiers of all vacant parking spots.
+    @return an array of vacant spot identifiers, in no particular order
+    **/
+    public String[] identifiers(){
+        String[] identifiers = new String[vacantSpots.size()];
+        for(int i = 0; i < identifiers.length; i++){
+            identifiers[i] = vacantSpots.get(i).getIdentifier();
+        }
+        return identifiers;
+    }
+
+    /**
+    Forgets every tracked spot.
+    **/
+    public void clear(){
+        vacantSpots.clear();
+        slots.clear();
+    }
+}
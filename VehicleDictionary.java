@@ -0,0 +1,86 @@
+/**
+ * This class gives every distinct vehicle attribute value, such as a make or a model, a small int code.
+ * Cars store these codes instead of their own copies of the strings, so a lot full of Toyota Corollas
+ * holds the strings "Toyota" and "Corolla" once, and two cars have the same make exactly when their
+ * make codes are equal.
+ *
+ * Codes are handed out in order from 0 and never reused. Values are matched exactly, including case.
+ * Since codes are never released, a dictionary codes at most a fixed number of values; once it is full, code()
+ * returns NOT_CODED for new values and the caller keeps its own copy, so values typed in or received over the
+ * network cannot grow it without limit.
+ * A dictionary may be used from several threads at once.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class VehicleDictionary
+{
+    public static final int NOT_CODED = -2; // code of a new value once the dictionary is full
+    public static final int MAX_SIZE = 16 * 1024; // values coded by default, far more makes and models than exist
+
+    public static final VehicleDictionary MAKES = new VehicleDictionary(); // shared dictionary of car makes
+    public static final VehicleDictionary MODELS = new VehicleDictionary(); // shared dictionary of car models
+
+    private int maxSize; // values coded at most
+    private ConcurrentHashMap<String, Integer> codes; // value -> code
+    private volatile String[] values; // code -> value, replaced by a larger copy when full
+    private int size; // number of codes handed out, only changed while holding the lock
+
+    /**
+    Constructor that initializes an empty dictionary coding up to MAX_SIZE values.
+    **/
+    public VehicleDictionary()
+    {
+        this(MAX_SIZE);
+    }
+
+    /**
+    Constructor that initializes an empty dictionary coding up to a given number of values.
+    @param maxSize the number of values to code at most
+    **/
+    public VehicleDictionary(int maxSize)
+    {
+        this.maxSize = maxSize;
+        this.codes = new ConcurrentHashMap<String, Integer>();
+        this.values = new String[Math.max(1, Math.min(64, maxSize))];
+    }
+
+    /**
+    Gets the code of a value, giving it a new code if it has none yet.
+    @param value the value to look up
+    @return the value's code, -1 if the value is null, or NOT_CODED if the value is new and the dictionary is full
+    **/
+    public int code(String value){
+        if(value == null) return -1;
+        Integer code = codes.get(value);
+        if(code != null) return code;
+        synchronized(this){
+            code = codes.get(value);
+            if(code != null) return code; // added by another thread meanwhile
+            if(size == maxSize) return NOT_CODED; // full, the caller keeps the value itself
+            if(size == values.length) values = Arrays.copyOf(values, Math.min(size * 2, maxSize));
+            values[size] = value;
+            codes.put(value, size); // published after the value is stored, so value(code) always finds it
+            return size++;
+        }
+    }
+
+    /**
+    Gets the value that has a given code.
+    @param code a code returned by code(String)
+    @return the value, or null if the code is -1 or NOT_CODED
+    **/
+    public String value(int code){
+        return code < 0 ? null : values[code];
+    }
+
+    /**
+    Gets the number of distinct values in the dictionary.
+    **/
+    public synchronized int size(){
+        return this.size;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * This class allocates spots zone by zone, a zone being the spots whose identifiers start with the same letter.
+ * It either fills the fullest zone first, so cars are packed into as few zones as possible and the rest can be
+ * closed or cleaned, or spreads the load by always picking the emptiest zone, so no zone's aisles get crowded.
+ * Inside a zone, the spot with the lowest identifier is taken.
+ *
+ * Each zone keeps its vacant spots in a TreeSet, and the zones with vacant spots are kept in a TreeSet ordered by
+ * their vacant count; a zone is taken out and put back whenever its count changes. Adding, removing and picking
+ * a spot each take O(log n) time.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+public class ZoneAllocationStrategy implements AllocationStrategy
+{
+    private boolean spread; // true to pick the emptiest zone, false to pick the fullest
+    private HashMap<Character, Zone> zones; // zone letter -> its vacant spots
+    private TreeSet<Zone> open; // zones with a vacant spot, the one to pick from first
+
+    /**
+    Constructor for ZoneAllocationStrategy.
+    @param spread true to spread the load over the zones, false to fill one zone first
+    **/
+    public ZoneAllocationStrategy(boolean spread)
+    {
+        this.spread = spread;
+        this.zones = new HashMap<Character, Zone>();
+        Comparator<Zone> byVacancies = Comparator.comparingInt((zone) -> zone.vacant.size());
+        if(spread) byVacancies = byVacancies.reversed();
+        this.open = new TreeSet<Zone>(byVacancies.thenComparing((zone) -> zone.letter)); // ties in letter order
+    }
+
+    /**
+    Creates a strategy that fills the fullest zone with a vacant spot first.
+    **/
+    public static ZoneAllocationStrategy fillZoneFirst(){
+        return new ZoneAllocationStrategy(false);
+    }
+
+    /**
+    Creates a strategy that always picks from the zone with the most vacant spots.
+    **/
+    public static ZoneAllocationStrategy spreadLoad(){
+        return new ZoneAllocationStrategy(true);
+    }
+
+    public void spotVacant(ParkingSpot parkingSpot){
+        Zone zone = zones.computeIfAbsent(letter(parkingSpot), Zone::new);
+        open.remove(zone); // its position depends on the count about to change
+        zone.vacant.add(parkingSpot);
+        open.add(zone);
+    }
+
+    public void spotTaken(ParkingSpot parkingSpot){
+        Zone zone = zones.get(letter(parkingSpot));
+        if(zone == null || !zone.vacant.contains(parkingSpot)) return; // not tracked
+        open.remove(zone);
+        zone.vacant.remove(parkingSpot);
+        if(!zone.vacant.isEmpty()) open.add(zone);
+    }
+
+    public ParkingSpot pick(){
+        return open.isEmpty() ? null : open.first().vacant.first();
+    }
+
+    public void clear(){
+        zones.clear();
+        open.clear();
+    }
+
+    /**
+    Checks if this strategy spreads the load rather than filling one zone first.
+    **/
+    public boolean isSpread(){
+        return this.spread;
+    }
+
+    private static char letter(ParkingSpot parkingSpot){
+        String identifier = parkingSpot.getIdentifier();
+        return identifier.isEmpty() ? ' ' : identifier.charAt(0);
+    }
+
+    /**
+    The vacant spots of one zone, lowest identifier first.
+    **/
+    private static class Zone
+    {
+        private char letter;
+        private TreeSet<ParkingSpot> vacant = new TreeSet<ParkingSpot>(Comparator.comparing(ParkingSpot::getIdentifier));
+
+        Zone(char letter)
+        {
+            this.letter = letter;
+        }
+    }
+}
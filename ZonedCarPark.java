@@ -0,0 +1,276 @@
+/**
+ * This class represents a car park split into zones A to Z, the zone of a spot being the letter its identifier starts with.
+ * Each zone is a separate CarPark (a shard) owned by its own thread: every operation on a zone is handed to that thread
+ * and runs there, so a shard never needs a lock and gates working in different zones never wait for each other.
+ * The operations and return codes are the same as CarPark's, and the methods are safe to call from many threads.
+ *
+ * Work that spans zones stays correct:
+ * - Registrations are claimed in one concurrent map (registration -> zone) shared by all shards. A shard claims the
+ *   registration with an atomic putIfAbsent on its own thread just before parking, and releases it just after removing,
+ *   so a car can never be parked in two zones at once.
+ * - Finds by make or model are sent to every shard at once and the matches gathered in zone order.
+ *   A find by registration looks up the claim and asks only that zone.
+ *
+ * Results name spots by identifier rather than returning ParkingSpot objects, since the spots belong to the shard threads.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+public class ZonedCarPark implements AutoCloseable
+{
+    public static final int ZONES = 26; // A to Z
+
+    private CarPark[] shards; // one car park per zone, only used on its own thread
+    private ExecutorService[] writers; // the single thread that owns each shard
+    private ConcurrentHashMap<String, Character> claims; // car registration -> zone the car is parked in
+
+    /**
+    Constructor that initializes an empty car park for each zone.
+    The zone threads are started as the zones are first used.
+    **/
+    public ZonedCarPark()
+    {
+        this.shards = new CarPark[ZONES];
+        this.writers = new ExecutorService[ZONES];
+        this.claims = new ConcurrentHashMap<String, Character>();
+        for(int i = 0; i < ZONES; i++){
+            String name = "carpark-zone-" + (char)('A' + i);
+            shards[i] = new CarPark();
+            writers[i] = Executors.newSingleThreadExecutor((r) -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+    Sets the clock parking times are read from in every zone.
+    @param clock the clock to use; the system clock is used by default
+    **/
+    public void setClock(Clock clock){
+        forEachZone((shard) -> {
+            shard.setClock(clock);
+            return null;
+        });
+    }
+
+    /**
+    Adds a new parking spot to its zone.
+    @param identifier a unique identifier for the parking spot, starting with the zone letter (e.g. A001)
+    @return false if a parking spot with the same identifier already exists, true otherwise.
+    **/
+    public boolean addSpot(String identifier){
+        return onZone(zone(identifier), (shard) -> shard.addSpot(identifier));
+    }
+
+    /**
+    Deletes a parking spot from its zone.
+    @param spotIdentifier the identifier of the parking spot to be deleted.
+    @return 0 if slot doesn't exist, 1 if slot is not vacant, 2 othewise.
+    **/
+    public int deleteSpot(String spotIdentifier){
+        return onZone(zone(spotIdentifier), (shard) -> shard.deleteSpot(spotIdentifier));
+    }
+
+    /**
+    Parks a car in a specified parking spot, provided the car is not parked in any zone.
+    @param identifier the identifier of the parking spot
+    @param registration the registration number of the car
+    @param make the make of the car
+    @param model the model of the car
+    @param year the year of the car
+    @return 0 if slot doesn't exist, 1 if slot not vacant or reserved for another car now, 2 if car found in another slot, 3 otherwise.
+    **/
+    public int parkCar(String identifier, String registration, String make, String model, int year){
+        char zone = zone(identifier);
+        return onZone(zone, (shard) -> {
+            int index = shard.findSpot(identifier);
+            if(index < 0){
+                return 0; // slot doesn't exist
+            }else if(!shard.viewAllSpots().get(index).getStatus()){
+                return 1; // slot occupied already
+            }else if(claims.putIfAbsent(registration, zone) != null){
+                return 2; // car in another slot, in this zone or another
+            }else{
+                int result = shard.parkCar(identifier, registration, make, model, year);
+                if(result != 3) claims.remove(registration, zone); // e.g. the slot is reserved for another car
+                return result;
+            }
+        });
+    }
+
+    /**
+    Removes the car with the given registration from whichever zone it is parked in.
+    @param registration of the car
+    @return false if car doesnt't exist, true othewise.
+    **/
+    public boolean removeCarByRegistration(String registration){
+        return checkOut(registration) >= 0;
+    }
+
+    /**
+    Removes the car with the given registration from whichever zone it is parked in and charges it.
+    @param registration of the car
+    @return -1 if car doesnt't exist, the charge in cents othewise (0 if the zone has no tariff).
+    **/
+    public long checkOut(String registration){
+        Character zone = claims.get(registration);
+        while(zone != null){
+            char claimed = zone;
+            long charge = onZone(claimed, (shard) -> {
+                long result = shard.checkOut(registration);
+                if(result >= 0) claims.remove(registration, claimed);
+                return result;
+            });
+            if(charge >= 0) return charge; // success
+            zone = claims.get(registration); // moved to another zone meanwhile, follow it
+            if(zone != null && zone == claimed) return -1; // parked again in the same zone after the removal we raced
+        }
+        return -1; // car doesnt exist
+    }
+
+    /**
+    Finds the spot holding the car with the given registration.
+    @param registration of the car
+    @return the identifier of the spot, or null if not found
+    **/
+    public String findCarByRegistration(String registration){
+        Character zone = claims.get(registration);
+        if(zone == null) return null;
+        return onZone(zone, (shard) -> {
+            int index = shard.findCar(registration);
+            return index < 0 ? null : shard.viewAllSpots().get(index).getIdentifier();
+        });
+    }
+
+    /**
+    Searches every zone for cars by make, ignoring case.
+    @param make the make of the car to search for (e.g., Toyota, Honda)
+    @return the identifiers of the spots holding a car of that make, zone by zone, empty if none
+    **/
+    public List<String> findCarByMake(String make){
+        return gather((shard, result) -> shard.findCarByMake(make, result));
+    }
+
+    /**
+    Searches every zone for cars by model, ignoring case.
+    @param model the model of the car to search for (e.g., Corolla)
+    @return the identifiers of the spots holding a car of that model, zone by zone, empty if none
+    **/
+    public List<String> findCarByModel(String model){
+        return gather((shard, result) -> shard.findCarByModel(model, result));
+    }
+
+    /**
+    Gets the number of vacant parking spots in every zone.
+    The count is exact once concurrent gate operations have finished.
+    @return the vacant spot count
+    **/
+    public int getVacantCount(){
+        int vacant = 0;
+        for(Integer count : forEachZone(CarPark::getVacantCount)) vacant += count;
+        return vacant;
+    }
+
+    /**
+    Removes all the cars from every zone, one zone at a time.
+    Gates may keep parking while this runs; cars parked in a zone after it was reset stay parked.
+    **/
+    public void reset(){
+        forEachZone((shard) -> {
+            ArrayList<String> registrations = new ArrayList<String>();
+            for(ParkingSpot spot : shard.viewAllSpots()){
+                if(!spot.getStatus()) registrations.add(spot.getCar().getRegistration());
+            }
+            shard.reset();
+            registrations.forEach(claims::remove); // released only once the cars are gone
+            return null;
+        });
+    }
+
+    /**
+    Gets the call counts and timings of one zone's operations.
+    @param zone the zone letter, A to Z
+    **/
+    public CarParkMetrics getMetrics(char zone){
+        return shards[slot(zone)].getMetrics(); // the counters are thread-safe
+    }
+
+    /**
+    Stops the zone threads once the operations already handed to them are done.
+    **/
+    public void close(){
+        for(ExecutorService writer : writers) writer.shutdown();
+    }
+
+    /**
+    Runs an operation on a zone's thread and waits for its result.
+    **/
+    private <T> T onZone(char zone, Function<CarPark, T> operation){
+        int slot = slot(zone);
+        return CompletableFuture.supplyAsync(() -> operation.apply(shards[slot]), writers[slot]).join();
+    }
+
+    /**
+    Runs an operation on every zone's thread at once and waits for all the results, in zone order.
+    **/
+    private <T> List<T> forEachZone(Function<CarPark, T> operation){
+        ArrayList<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(ZONES);
+        for(int i = 0; i < ZONES; i++){
+            CarPark shard = shards[i];
+            futures.add(CompletableFuture.supplyAsync(() -> operation.apply(shard), writers[i]));
+        }
+        ArrayList<T> results = new ArrayList<T>(ZONES);
+        for(CompletableFuture<T> future : futures) results.add(future.join());
+        return results;
+    }
+
+    /**
+    Runs a find on every zone at once, each into its own search result, and gathers the matching identifiers.
+    **/
+    private List<String> gather(Find find){
+        ArrayList<String> identifiers = new ArrayList<String>();
+        for(List<String> matches : forEachZone((shard) -> {
+            SearchResult result = new SearchResult();
+            find.run(shard, result);
+            ArrayList<String> zoneMatches = new ArrayList<String>(result.size());
+            for(ParkingSpot spot : result.getSpots()) zoneMatches.add(spot.getIdentifier());
+            return zoneMatches;
+        })){
+            identifiers.addAll(matches);
+        }
+        return identifiers;
+    }
+
+    /**
+    A find that adds its matches to a search result, e.g. CarPark.findCarByMake(String, SearchResult).
+    **/
+    private interface Find
+    {
+        void run(CarPark shard, SearchResult result);
+    }
+
+    /**
+    Gets the zone of a spot identifier.
+    @throws IllegalArgumentException if the identifier does not start with a letter from A to Z
+    **/
+    private static char zone(String identifier){
+        if(identifier == null || identifier.isEmpty()) throw new IllegalArgumentException("Identifier has no zone letter: " + identifier);
+        return identifier.charAt(0);
+    }
+
+    private static int slot(char zone){
+        if(zone < 'A' || zone > 'Z') throw new IllegalArgumentException("Zone must be a letter from A to Z: " + zone);
+        return zone - 'A';
+    }
+}
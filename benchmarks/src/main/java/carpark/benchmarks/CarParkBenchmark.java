@@ -0,0 +1,150 @@
+package carpark.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the single-spot CarPark operations on lots of 10^2 to 10^6 spots, with 0%, 50% or 95% of the spots occupied.
+ * Operations that change the lot are paired with the opposite change (e.g. park then remove) so that every
+ * invocation sees the same lot size and occupancy.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CarParkBenchmark
+{
+    static final String[] MAKES = {"Toyota", "Honda", "Ford", "Nissan", "Mazda", "Kia", "Hyundai", "Tesla", "BMW", "Audi"};
+    static final String[] MODELS = {"Corolla", "Civic", "Focus", "Leaf", "Mazda3", "Rio", "i30", "Model 3", "320i", "A4"};
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int lotSize;
+
+    @Param({"0", "50", "95"})
+    int occupancy; // percentage of spots occupied
+
+    Object carPark;
+    String[] vacantSpots; // identifiers of the vacant spots, in list order
+    String[] parkedCars; // registrations of the parked cars
+    int next; // rotates through vacantSpots, parkedCars, MAKES and MODELS
+
+    @Setup(Level.Trial)
+    public void fill() throws Throwable{
+        carPark = newLot(lotSize);
+        int occupied = (int)((long)lotSize * occupancy / 100);
+        parkedCars = park(carPark, occupied);
+        vacantSpots = new String[lotSize - occupied];
+        for(int i = occupied; i < lotSize; i++){
+            vacantSpots[i - occupied] = "P" + i;
+        }
+    }
+
+    /**
+    Creates a lot of vacant spots named P0, P1, ...
+    **/
+    static Object newLot(int size) throws Throwable{
+        Object carPark = (Object)CarParkHandles.NEW_CAR_PARK.invokeExact();
+        for(int i = 0; i < size; i++){
+            if(!(boolean)CarParkHandles.ADD_SPOT.invokeExact(carPark, "P" + i)) throw new IllegalStateException("Spot P" + i + " not added");
+        }
+        return carPark;
+    }
+
+    /**
+    Parks cars R0, R1, ... in the first spots of a lot, with makes and models taken in turn from MAKES and MODELS.
+    **/
+    static String[] park(Object carPark, int count) throws Throwable{
+        String[] registrations = new String[count];
+        for(int i = 0; i < count; i++){
+            registrations[i] = "R" + i;
+            int code = (int)CarParkHandles.PARK_CAR.invokeExact(carPark, "P" + i, registrations[i], MAKES[i % MAKES.length], MODELS[i % MODELS.length], 2015);
+            if(code != 3) throw new IllegalStateException("Car " + registrations[i] + " not parked: " + code);
+        }
+        return registrations;
+    }
+
+    /**
+    Adds a spot at the end of the list, then deletes it again.
+    **/
+    @Benchmark
+    public void addSpot(Blackhole blackhole) throws Throwable{
+        blackhole.consume((boolean)CarParkHandles.ADD_SPOT.invokeExact(carPark, "NEW"));
+        blackhole.consume((int)CarParkHandles.DELETE_SPOT.invokeExact(carPark, "NEW"));
+    }
+
+    /**
+    Deletes the first vacant spot in the list, then adds it back at the end.
+    Spots are taken in list order, so the deleted spot is always the one after the occupied ones.
+    **/
+    @Benchmark
+    public void deleteSpot(Blackhole blackhole) throws Throwable{
+        if(vacantSpots.length == 0) return;
+        String identifier = vacantSpots[next++ % vacantSpots.length];
+        blackhole.consume((int)CarParkHandles.DELETE_SPOT.invokeExact(carPark, identifier));
+        blackhole.consume((boolean)CarParkHandles.ADD_SPOT.invokeExact(carPark, identifier));
+    }
+
+    /**
+    Parks a car in a vacant spot, then removes it.
+    **/
+    @Benchmark
+    public void parkCar(Blackhole blackhole) throws Throwable{
+        if(vacantSpots.length == 0) return;
+        String identifier = vacantSpots[next++ % vacantSpots.length];
+        blackhole.consume((int)CarParkHandles.PARK_CAR.invokeExact(carPark, identifier, "BENCH", "Toyota", "Corolla", 2015));
+        blackhole.consume((boolean)CarParkHandles.REMOVE_CAR.invokeExact(carPark, "BENCH"));
+    }
+
+    /**
+    Finds a parked car by registration. With no cars parked this measures a miss.
+    **/
+    @Benchmark
+    public int findCar() throws Throwable{
+        String registration = parkedCars.length == 0 ? "R0" : parkedCars[next++ % parkedCars.length];
+        return (int)CarParkHandles.FIND_CAR.invokeExact(carPark, registration);
+    }
+
+    /**
+    Finds all cars of one make into a new search result; each make matches a tenth of the parked cars.
+    **/
+    @Benchmark
+    public boolean findCarByMake() throws Throwable{
+        Object result = (Object)CarParkHandles.NEW_SEARCH_RESULT.invokeExact();
+        return (boolean)CarParkHandles.FIND_CAR_BY_MAKE.invokeExact(carPark, MAKES[next++ % MAKES.length], result);
+    }
+
+    /**
+    Finds all cars of one model into a new search result; each model matches a tenth of the parked cars.
+    **/
+    @Benchmark
+    public boolean findCarByModel() throws Throwable{
+        Object result = (Object)CarParkHandles.NEW_SEARCH_RESULT.invokeExact();
+        return (boolean)CarParkHandles.FIND_CAR_BY_MODEL.invokeExact(carPark, MODELS[next++ % MODELS.length], result);
+    }
+
+    /**
+    Clears the search highlights.
+    **/
+    @Benchmark
+    public Object resetSearch() throws Throwable{
+        CarParkHandles.RESET_SEARCH.invokeExact(carPark);
+        return carPark;
+    }
+}
@@ -0,0 +1,58 @@
+package carpark.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks CarPark.reset() on lots of 10^2 to 10^6 spots at 0%, 50% or 95% occupancy.
+ * Every call empties the lot, so the cars are parked again before each call, outside the measured time.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class ResetBenchmark
+{
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int lotSize;
+
+    @Param({"0", "50", "95"})
+    int occupancy; // percentage of spots occupied
+
+    Object carPark;
+
+    @Setup(Level.Trial)
+    public void create() throws Throwable{
+        carPark = CarParkBenchmark.newLot(lotSize);
+    }
+
+    @Setup(Level.Invocation)
+    public void refill() throws Throwable{
+        CarParkBenchmark.park(carPark, (int)((long)lotSize * occupancy / 100));
+    }
+
+    /**
+    Removes every car from the lot.
+    **/
+    @Benchmark
+    public Object reset() throws Throwable{
+        CarParkHandles.RESET.invokeExact(carPark);
+        return carPark;
+    }
+}
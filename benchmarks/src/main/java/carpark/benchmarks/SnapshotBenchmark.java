@@ -0,0 +1,67 @@
+package carpark.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks ParkingSnapshot.load() into an empty CarPark, the startup cost of a lot of 10^4 to 10^6 spots
+ * at 0%, 50% or 95% occupancy. The snapshot is written once per trial; every call loads it into a new car park.
+ * The heap is fixed at 2GB so that the million-spot lot is not measured growing the heap.
+ *
+ * @author (Aditya Roy)
+ * @version (13/05/2024)
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class SnapshotBenchmark
+{
+    @Param({"10000", "100000", "1000000"})
+    int lotSize;
+
+    @Param({"0", "50", "95"})
+    int occupancy; // percentage of spots occupied
+
+    Path snapshot;
+
+    @Setup(Level.Trial)
+    public void save() throws Throwable{
+        Object carPark = CarParkBenchmark.newLot(lotSize);
+        CarParkBenchmark.park(carPark, (int)((long)lotSize * occupancy / 100));
+        snapshot = Files.createTempFile("carpark", ".snapshot");
+        CarParkHandles.WRITE_SNAPSHOT.invokeExact(carPark, snapshot, 0L);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws Throwable{
+        Files.deleteIfExists(snapshot);
+    }
+
+    /**
+    Loads the snapshot into a new car park.
+    **/
+    @Benchmark
+    public Object load(Blackhole blackhole) throws Throwable{
+        Object carPark = (Object)CarParkHandles.NEW_CAR_PARK.invokeExact();
+        blackhole.consume((long)CarParkHandles.LOAD_SNAPSHOT.invokeExact(snapshot, carPark));
+        return carPark;
+    }
+}